@@ -0,0 +1,52 @@
+package com.project.back_end.DTO;
+
+import java.time.LocalDateTime;
+
+public class AppointmentSeriesRequest {
+    
+    private Long doctorId;
+    private LocalDateTime firstAppointmentTime;
+    private int occurrences;
+    private int intervalDays = 7;
+    
+    public AppointmentSeriesRequest() {}
+    
+    public AppointmentSeriesRequest(Long doctorId, LocalDateTime firstAppointmentTime, int occurrences, int intervalDays) {
+        this.doctorId = doctorId;
+        this.firstAppointmentTime = firstAppointmentTime;
+        this.occurrences = occurrences;
+        this.intervalDays = intervalDays;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+    
+    public LocalDateTime getFirstAppointmentTime() {
+        return firstAppointmentTime;
+    }
+    
+    public void setFirstAppointmentTime(LocalDateTime firstAppointmentTime) {
+        this.firstAppointmentTime = firstAppointmentTime;
+    }
+    
+    public int getOccurrences() {
+        return occurrences;
+    }
+    
+    public void setOccurrences(int occurrences) {
+        this.occurrences = occurrences;
+    }
+    
+    public int getIntervalDays() {
+        return intervalDays;
+    }
+    
+    public void setIntervalDays(int intervalDays) {
+        this.intervalDays = intervalDays;
+    }
+}
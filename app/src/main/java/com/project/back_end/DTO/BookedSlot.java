@@ -0,0 +1,13 @@
+package com.project.back_end.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of an appointment reduced to the slot it occupies
+ */
+public interface BookedSlot {
+
+    Long getDoctorId();
+
+    LocalDateTime getAppointmentTime();
+}
@@ -0,0 +1,11 @@
+package com.project.back_end.DTO;
+
+/**
+ * Projection of the number of appointments booked with a doctor
+ */
+public interface DoctorBookingCount {
+
+    Long getDoctorId();
+
+    Long getBookings();
+}
@@ -0,0 +1,54 @@
+package com.project.back_end.DTO;
+
+import com.project.back_end.models.TimeSlot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DoctorSummary {
+    
+    private Long id;
+    private String name;
+    private String specialty;
+    private String email;
+    private String phone;
+    private List<TimeSlot> availableTimes = new ArrayList<>();
+    
+    public DoctorSummary() {}
+    
+    public DoctorSummary(Long id, String name, String specialty, String email, String phone) {
+        this.id = id;
+        this.name = name;
+        this.specialty = specialty;
+        this.email = email;
+        this.phone = phone;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getSpecialty() {
+        return specialty;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public List<TimeSlot> getAvailableTimes() {
+        return availableTimes;
+    }
+    
+    public void setAvailableTimes(List<TimeSlot> availableTimes) {
+        this.availableTimes = availableTimes;
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.back_end.DTO;
+
+/**
+ * Projection of a patient reduced to ID and name
+ */
+public interface PatientName {
+
+    Long getId();
+
+    String getName();
+}
@@ -0,0 +1,41 @@
+package com.project.back_end.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Enables the background jobs declared with @Scheduled, such as the slot scheduler.
+ * Long batch jobs run on their own scheduler, so they can never delay the once-a-second hold and waiting room ticks.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /** Name of the scheduler for long-running batch jobs, for @Scheduled(scheduler = ...) */
+    public static final String BATCH_SCHEDULER = "batchScheduler";
+
+    /**
+     * Default scheduler, used by the short periodic ticks
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        return scheduler(2, "tick-");
+    }
+
+    /**
+     * Runs slot horizon generation and the appointment status rollover; one thread each, so neither waits for the other
+     */
+    @Bean(BATCH_SCHEDULER)
+    public ThreadPoolTaskScheduler batchScheduler() {
+        return scheduler(2, "batch-");
+    }
+
+    private static ThreadPoolTaskScheduler scheduler(int poolSize, String threadNamePrefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        return scheduler;
+    }
+}
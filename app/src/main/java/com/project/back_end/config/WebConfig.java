@@ -1,15 +1,25 @@
 package com.project.back_end.config;
 
 
+import com.project.back_end.security.PrincipalArgumentResolver;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.lang.NonNull; 
+import org.springframework.lang.NonNull;
 
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final PrincipalArgumentResolver principalArgumentResolver;
+
+    public WebConfig(PrincipalArgumentResolver principalArgumentResolver) {
+        this.principalArgumentResolver = principalArgumentResolver;
+    }
+
     @Override
     public void addCorsMappings(@NonNull CorsRegistry registry) {
         // Allow CORS for all endpoints
@@ -18,4 +28,10 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE")  // Specify allowed methods
                 .allowedHeaders("*");  // You can restrict headers if needed
     }
+
+    @Override
+    public void addArgumentResolvers(@NonNull List<HandlerMethodArgumentResolver> resolvers) {
+        // Resolve the authenticated principal from the {token} path variable once per request
+        resolvers.add(principalArgumentResolver);
+    }
 }
@@ -1,7 +1,11 @@
 package com.project.back_end.controllers;
 
 import com.project.back_end.models.Admin;
+import com.project.back_end.security.AuthenticatedPrincipal;
+import com.project.back_end.services.AppointmentStatusRollover;
+import com.project.back_end.services.AvailabilityCache;
 import com.project.back_end.services.Service;
+import com.project.back_end.services.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +19,15 @@ public class AdminController {
     @Autowired
     private Service service;
 
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private AppointmentStatusRollover appointmentStatusRollover;
+
     /**
      * Admin login endpoint
      * @param admin Admin credentials (username and password)
@@ -24,4 +37,29 @@ public class AdminController {
     public ResponseEntity<Map<String, String>> adminLogin(@RequestBody Admin admin) {
         return service.validateAdmin(admin);
     }
-}
\ No newline at end of file
+
+    /**
+     * Cache metrics endpoint (admin only)
+     * @param principal Admin resolved from the authentication token
+     * @return hit, miss, eviction and load-latency counters of the in-process caches, and background job progress
+     */
+    @GetMapping("/metrics/{token}")
+    public ResponseEntity<Map<String, Object>> getMetrics(AuthenticatedPrincipal principal) {
+
+        // Validate token for admin
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "admin");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "availabilityCache", availabilityCache.getStats(),
+                "tokenCache", Map.of(
+                        "hits", tokenService.getCacheHits(),
+                        "misses", tokenService.getCacheMisses()
+                ),
+                "statusRollover", appointmentStatusRollover.getStats()
+        ));
+    }
+}
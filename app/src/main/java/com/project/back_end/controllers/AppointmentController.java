@@ -1,8 +1,11 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.dto.AppointmentSeriesRequest;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import com.project.back_end.services.Service;
+import com.project.back_end.services.WaitingRoom;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,28 +23,31 @@ public class AppointmentController {
     @Autowired
     private Service service;
 
+    @Autowired
+    private WaitingRoom waitingRoom;
+
     /**
      * Get appointments for a specific doctor on a specific date
      * @param date The date for appointments (yyyy-MM-dd)
      * @param patientName Optional patient name to filter by
-     * @param token Authentication token
+     * @param principal Principal resolved from the authentication token
      * @return List of appointments
      */
     @GetMapping("/{date}/{patientName}/{token}")
     public ResponseEntity<Map<String, Object>> getAppointments(
             @PathVariable String date,
             @PathVariable String patientName,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for doctor
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "doctor");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "doctor");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
         LocalDate localDate = LocalDate.parse(date);
-        Map<String, Object> appointments = appointmentService.getAppointment(patientName, localDate, token);
+        Map<String, Object> appointments = appointmentService.getAppointment(patientName, localDate, principal);
         
         return ResponseEntity.ok(appointments);
     }
@@ -49,16 +55,18 @@ public class AppointmentController {
     /**
      * Book a new appointment
      * @param appointment Appointment details
-     * @param token Patient authentication token
+     * @param admission Admission token from the doctor's waiting room, required while the doctor is gated
+     * @param principal Patient resolved from the authentication token
      * @return Success or error response
      */
     @PostMapping("/{token}")
     public ResponseEntity<Map<String, String>> bookAppointment(
             @RequestBody Appointment appointment,
-            @PathVariable String token) {
+            @RequestParam(required = false) String admission,
+            AuthenticatedPrincipal principal) {
 
         // Validate token for patient
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "patient");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
@@ -74,56 +82,249 @@ public class AppointmentController {
                     .body(Map.of("error", "Appointment time is not available"));
         }
 
-        // Book the appointment
-        int bookingResult = appointmentService.bookAppointment(appointment);
+        // Doctors under heavy demand are booked only through their waiting room
+        Long doctorId = appointment.getDoctor().getId();
+        if (waitingRoom.isGated(doctorId) && !waitingRoom.isAdmitted(doctorId, principal.getId(), admission)) {
+            return ResponseEntity.status(429)
+                    .body(Map.of("error", "Join the waiting room for this doctor before booking"));
+        }
+
+        // Book the appointment for the authenticated patient
+        int bookingResult = appointmentService.bookAppointment(appointment, principal.getId());
         if (bookingResult == 1) {
+            waitingRoom.complete(doctorId, admission);
             return ResponseEntity.status(201)
                     .body(Map.of("message", "Appointment booked successfully"));
+        } else if (bookingResult == -1) {
+            return ResponseEntity.status(409)
+                    .body(Map.of("error", "Appointment slot already taken"));
         } else {
             return ResponseEntity.internalServerError()
                     .body(Map.of("error", "Failed to book appointment"));
         }
     }
 
+    /**
+     * Book a recurring series of appointments with one doctor; either every occurrence is booked or none is
+     * @param request Doctor, first appointment time, number of occurrences and days between them
+     * @param admission Admission token from the doctor's waiting room, required while the doctor is gated
+     * @param principal Patient resolved from the authentication token
+     * @return The booked times, or an error response
+     */
+    @PostMapping("/series/{token}")
+    public ResponseEntity<Map<String, Object>> bookSeries(
+            @RequestBody AppointmentSeriesRequest request,
+            @RequestParam(required = false) String admission,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for patient
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        Long doctorId = request.getDoctorId();
+        if (doctorId != null && waitingRoom.isGated(doctorId)
+                && !waitingRoom.isAdmitted(doctorId, principal.getId(), admission)) {
+            return ResponseEntity.status(429)
+                    .body(Map.of("error", "Join the waiting room for this doctor before booking"));
+        }
+
+        ResponseEntity<Map<String, Object>> result = appointmentService.bookSeries(request, principal.getId());
+        if (result.getStatusCode().is2xxSuccessful()) {
+            waitingRoom.complete(doctorId, admission);
+        }
+        return result;
+    }
+
+    /**
+     * Join the waiting room of a doctor
+     * @param doctorId Doctor ID
+     * @param principal Patient resolved from the authentication token
+     * @return The ticket ID to poll with
+     */
+    @PostMapping("/queue/{doctorId}/{token}")
+    public ResponseEntity<Map<String, Object>> joinQueue(
+            @PathVariable Long doctorId,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for patient
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        WaitingRoom.Ticket ticket = waitingRoom.join(doctorId, principal.getId());
+        return ResponseEntity.status(202)
+                .body(Map.of("ticketId", ticket.getId()));
+    }
+
+    /**
+     * Poll a waiting room ticket
+     * @param ticketId Ticket ID returned when joining
+     * @param principal Patient resolved from the authentication token
+     * @return The queue position, or the admission token once admitted
+     */
+    @GetMapping("/queue/{ticketId}/{token}")
+    public ResponseEntity<Map<String, Object>> pollQueue(
+            @PathVariable String ticketId,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for patient
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        Map<String, Object> status = waitingRoom.poll(ticketId, principal.getId());
+        if (status == null) {
+            return ResponseEntity.status(404)
+                    .body(Map.of("error", "Ticket not found or expired"));
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * Hold a slot for a few minutes while the patient completes the booking
+     * @param appointment Doctor and appointment time of the slot
+     * @param admission Admission token from the doctor's waiting room, required while the doctor is gated
+     * @param principal Patient resolved from the authentication token
+     * @return The hold ID and its expiry, or an error response
+     */
+    @PostMapping("/hold/{token}")
+    public ResponseEntity<Map<String, Object>> holdSlot(
+            @RequestBody Appointment appointment,
+            @RequestParam(required = false) String admission,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for patient
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        // Only slots of the doctor's schedule can be held
+        int validationResult = service.validateAppointment(appointment);
+        if (validationResult == -1) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Doctor does not exist"));
+        } else if (validationResult == 0) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Appointment time is not available"));
+        }
+
+        // Holding is part of booking, so a gated doctor's slots can only be held with an admission;
+        // the admission stays open until the booking itself completes it
+        Long doctorId = appointment.getDoctor().getId();
+        if (waitingRoom.isGated(doctorId) && !waitingRoom.isAdmitted(doctorId, principal.getId(), admission)) {
+            return ResponseEntity.status(429)
+                    .body(Map.of("error", "Join the waiting room for this doctor before booking"));
+        }
+
+        return appointmentService.holdSlot(appointment, principal.getId());
+    }
+
+    /**
+     * Release a slot hold
+     * @param holdId ID of the hold
+     * @param principal Patient resolved from the authentication token
+     * @return Success or error response
+     */
+    @DeleteMapping("/hold/{holdId}/{token}")
+    public ResponseEntity<Map<String, String>> releaseHold(
+            @PathVariable String holdId,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for patient
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return appointmentService.releaseHold(holdId, principal.getId());
+    }
+
+    /**
+     * Book the first doctor of a specialty who is free at the requested time; doctors gated by the waiting room are skipped
+     * @param specialty Specialty of the doctor
+     * @param appointment Appointment details; only the appointment time is used
+     * @param principal Patient resolved from the authentication token
+     * @return The booked doctor, or an error response
+     */
+    @PostMapping("/any/{specialty}/{token}")
+    public ResponseEntity<Map<String, Object>> bookAnyDoctor(
+            @PathVariable String specialty,
+            @RequestBody Appointment appointment,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for patient
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return appointmentService.bookAnyDoctor(specialty, appointment.getAppointmentTime(), principal.getId());
+    }
+
     /**
      * Update an existing appointment
      * @param appointment Updated appointment details
-     * @param token Patient authentication token
+     * @param admission Admission token from the target doctor's waiting room, required while that doctor is gated
+     * @param principal Patient resolved from the authentication token
      * @return Success or error response
      */
     @PutMapping("/{token}")
     public ResponseEntity<Map<String, String>> updateAppointment(
             @RequestBody Appointment appointment,
-            @PathVariable String token) {
+            @RequestParam(required = false) String admission,
+            AuthenticatedPrincipal principal) {
 
         // Validate token for patient
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "patient");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
-        return appointmentService.updateAppointment(appointment);
+        // Rescheduling takes a slot just like booking does
+        Long doctorId = appointment.getDoctor() != null ? appointment.getDoctor().getId() : null;
+        if (doctorId != null && waitingRoom.isGated(doctorId)
+                && !waitingRoom.isAdmitted(doctorId, principal.getId(), admission)) {
+            return ResponseEntity.status(429)
+                    .body(Map.of("error", "Join the waiting room for this doctor before booking"));
+        }
+
+        ResponseEntity<Map<String, String>> result = appointmentService.updateAppointment(appointment, principal);
+        if (result.getStatusCode().is2xxSuccessful()) {
+            waitingRoom.complete(doctorId, admission);
+        }
+        return result;
     }
 
     /**
      * Cancel an appointment
      * @param id Appointment ID
-     * @param token Patient authentication token
+     * @param principal Patient resolved from the authentication token
      * @return Success or error response
      */
     @DeleteMapping("/{id}/{token}")
     public ResponseEntity<Map<String, String>> cancelAppointment(
             @PathVariable long id,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for patient
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "patient");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
-        return appointmentService.cancelAppointment(id, token);
+        return appointmentService.cancelAppointment(id, principal);
     }
 }
\ No newline at end of file
@@ -3,12 +3,16 @@ package com.project.back_end.controllers;
 import com.project.back_end.models.Doctor;
 import com.project.back_end.dto.Login;
 import com.project.back_end.services.DoctorService;
+import com.project.back_end.services.DoctorSuggestIndex;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -21,6 +25,9 @@ public class DoctorController {
     @Autowired
     private Service service;
 
+    @Autowired
+    private DoctorSuggestIndex doctorSuggestIndex;
+
     /**
      * Get doctor availability for a specific date
      */
@@ -29,17 +36,17 @@ public class DoctorController {
             @PathVariable String user,
             @PathVariable Long doctorId,
             @PathVariable String date,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for the specified user
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, user);
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, user);
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
         LocalDate localDate = LocalDate.parse(date);
-        var availability = doctorService.getDoctorAvailability(doctorId, localDate);
+        var availability = doctorService.getDoctorAvailability(doctorId, localDate, principal);
 
         return ResponseEntity.ok(Map.of(
                 "doctorId", doctorId,
@@ -49,15 +56,77 @@ public class DoctorController {
     }
 
     /**
-     * Get all doctors
+     * Get availability of several doctors (by ID or specialty) for every day of a date range
+     */
+    @GetMapping("/availability/range/{user}/{token}")
+    public ResponseEntity<Map<String, Object>> getAvailabilityRange(
+            @PathVariable String user,
+            @RequestParam(required = false) List<Long> doctorIds,
+            @RequestParam(required = false) String specialty,
+            @RequestParam String from,
+            @RequestParam String to,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for the specified user
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, user);
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return doctorService.getAvailabilityMatrix(doctorIds, specialty, LocalDate.parse(from), LocalDate.parse(to), principal);
+    }
+
+    /**
+     * Get the doctors (optionally of one specialty) who are free at a given date and time
+     */
+    @GetMapping("/free/{user}/{date}/{time}/{token}")
+    public ResponseEntity<Map<String, Object>> getFreeDoctors(
+            @PathVariable String user,
+            @PathVariable String date,
+            @PathVariable String time,
+            @RequestParam(required = false) String specialty,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for the specified user
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, user);
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return doctorService.getFreeDoctors(LocalDate.parse(date), LocalTime.parse(time), specialty, principal);
+    }
+
+    /**
+     * Get the earliest free slots across all doctors of a specialty over the next few days
+     */
+    @GetMapping("/next-available/{user}/{specialty}/{token}")
+    public ResponseEntity<Map<String, Object>> getNextAvailable(
+            @PathVariable String user,
+            @PathVariable String specialty,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "5") int limit,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for the specified user
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, user);
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return doctorService.getNextAvailable(specialty, days, limit, principal);
+    }
+
+    /**
+     * Get one page of doctors; pass the returned nextCursor to get the next page
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllDoctors() {
-        var doctors = doctorService.getDoctors();
-        return ResponseEntity.ok(Map.of(
-                "doctors", doctors,
-                "count", doctors.size()
-        ));
+    public ResponseEntity<Map<String, Object>> getAllDoctors(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + DoctorService.DEFAULT_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(doctorService.getDoctors(cursor, size));
     }
 
     /**
@@ -66,10 +135,10 @@ public class DoctorController {
     @PostMapping("/{token}")
     public ResponseEntity<Map<String, String>> addDoctor(
             @RequestBody Doctor doctor,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for admin
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "admin");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "admin");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
@@ -101,10 +170,10 @@ public class DoctorController {
     @PutMapping("/{token}")
     public ResponseEntity<Map<String, String>> updateDoctor(
             @RequestBody Doctor doctor,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for admin
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "admin");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "admin");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
@@ -128,10 +197,10 @@ public class DoctorController {
     @DeleteMapping("/{id}/{token}")
     public ResponseEntity<Map<String, String>> deleteDoctor(
             @PathVariable Long id,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for admin
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "admin");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "admin");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
@@ -149,6 +218,23 @@ public class DoctorController {
         }
     }
 
+    /**
+     * Autocomplete doctor names and specialties, most booked first; each suggestion carries its rank, not its booking count
+     * @param prefix the text typed so far
+     * @param limit maximum number of suggestions (capped at 50)
+     */
+    @GetMapping("/suggest/{prefix}")
+    public ResponseEntity<Map<String, Object>> suggest(
+            @PathVariable String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<DoctorSuggestIndex.Suggestion> suggestions = doctorSuggestIndex.suggest(prefix, Math.min(limit, 50));
+        return ResponseEntity.ok(Map.of(
+                "suggestions", suggestions,
+                "count", suggestions.size()
+        ));
+    }
+
     /**
      * Filter doctors by name, time, and/or specialty
      */
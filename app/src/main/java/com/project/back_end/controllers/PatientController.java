@@ -3,6 +3,7 @@ package com.project.back_end.controllers;
 import com.project.back_end.models.Patient;
 import com.project.back_end.dto.Login;
 import com.project.back_end.services.PatientService;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -24,15 +25,15 @@ public class PatientController {
      * Get patient details
      */
     @GetMapping("/{token}")
-    public ResponseEntity<Map<String, Object>> getPatientDetails(@PathVariable String token) {
+    public ResponseEntity<Map<String, Object>> getPatientDetails(AuthenticatedPrincipal principal) {
         // Validate token for patient
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "patient");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
-        return patientService.getPatientDetails(token);
+        return patientService.getPatientDetails(principal);
     }
 
     /**
@@ -65,39 +66,43 @@ public class PatientController {
     }
 
     /**
-     * Get patient appointments
+     * Get one page of patient appointments; pass the returned nextCursor to get the next page
      */
     @GetMapping("/{id}/{token}")
     public ResponseEntity<Map<String, Object>> getPatientAppointments(
             @PathVariable Long id,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PatientService.DEFAULT_PAGE_SIZE) int size) {
 
         // Validate token for patient
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "patient");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
-        return patientService.getPatientAppointment(id, token);
+        return patientService.getPatientAppointment(id, principal, cursor, size);
     }
 
     /**
-     * Filter patient appointments
+     * Filter patient appointments, one page at a time
      */
     @GetMapping("/filter/{condition}/{name}/{token}")
     public ResponseEntity<Map<String, Object>> filterPatientAppointments(
             @PathVariable String condition,
             @PathVariable String name,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PatientService.DEFAULT_PAGE_SIZE) int size) {
 
         // Validate token for patient
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "patient");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "patient");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
         }
 
-        return service.filterPatient(condition, name, token);
+        return service.filterPatient(condition, name, principal, cursor, size);
     }
 }
\ No newline at end of file
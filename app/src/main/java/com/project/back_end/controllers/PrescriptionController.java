@@ -2,11 +2,15 @@ package com.project.back_end.controllers;
 
 import com.project.back_end.models.Prescription;
 import com.project.back_end.services.PrescriptionService;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -25,10 +29,10 @@ public class PrescriptionController {
     @PostMapping("/{token}")
     public ResponseEntity<Map<String, String>> savePrescription(
             @RequestBody Prescription prescription,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for doctor
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "doctor");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "doctor");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
@@ -37,16 +41,58 @@ public class PrescriptionController {
         return prescriptionService.savePrescription(prescription);
     }
 
+    /**
+     * Bulk-ingest prescriptions, e.g. when migrating history from another system
+     * @param body A JSON array of prescriptions, or one prescription per line (NDJSON)
+     * @return Inserted and failed counts, with the index and reason of each failed record
+     */
+    @PostMapping(value = "/bulk/{token}",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Map<String, Object>> bulkSavePrescriptions(
+            InputStream body,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for doctor
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "doctor");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return prescriptionService.bulkSavePrescriptions(body);
+    }
+
+    /**
+     * Get the prescriptions of several appointments, e.g. a doctor's day sheet, in one request
+     * @param appointmentIds Comma-separated appointment IDs
+     * @param flagsOnly Return only whether each appointment has a prescription
+     */
+    @GetMapping("/batch/{token}")
+    public ResponseEntity<Map<String, Object>> getPrescriptions(
+            @RequestParam List<Long> appointmentIds,
+            @RequestParam(defaultValue = "false") boolean flagsOnly,
+            AuthenticatedPrincipal principal) {
+
+        // Validate token for doctor
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "doctor");
+        if (tokenValidation.getStatusCode().isError()) {
+            return ResponseEntity.status(tokenValidation.getStatusCode())
+                    .body(Map.of("error", tokenValidation.getBody().get("message")));
+        }
+
+        return prescriptionService.getPrescriptions(appointmentIds, flagsOnly);
+    }
+
     /**
      * Get prescription by appointment ID
      */
     @GetMapping("/{appointmentId}/{token}")
     public ResponseEntity<Map<String, Object>> getPrescription(
             @PathVariable Long appointmentId,
-            @PathVariable String token) {
+            AuthenticatedPrincipal principal) {
 
         // Validate token for doctor
-        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(token, "doctor");
+        ResponseEntity<Map<String, String>> tokenValidation = service.validateToken(principal, "doctor");
         if (tokenValidation.getStatusCode().isError()) {
             return ResponseEntity.status(tokenValidation.getStatusCode())
                     .body(Map.of("error", tokenValidation.getBody().get("message")));
@@ -8,7 +8,15 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments",
+       uniqueConstraints = @UniqueConstraint(name = "uk_appointment_doctor_time",
+                                             columnNames = {"doctor_id", "appointment_time"}),
+       indexes = {
+           @Index(name = "idx_appointment_patient_status_time", columnList = "patient_id, status, appointment_time"),
+           @Index(name = "idx_appointment_status_time", columnList = "status, appointment_time"),
+           @Index(name = "idx_appointment_patient_time", columnList = "patient_id, appointment_time"),
+           @Index(name = "idx_appointment_time_doctor", columnList = "appointment_time, doctor_id")
+       })
 public class Appointment {
     
     @Id
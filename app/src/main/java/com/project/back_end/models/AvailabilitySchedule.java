@@ -0,0 +1,89 @@
+package com.project.back_end.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable daily availability of a doctor: the template slots sorted by start minute.
+ * All checks are binary searches or bounds comparisons over primitive arrays and do not allocate.
+ */
+public final class AvailabilitySchedule {
+
+    public static final int NOON_MINUTE = 12 * 60;
+
+    private static final AvailabilitySchedule EMPTY = new AvailabilitySchedule(Collections.emptyList());
+
+    private final List<TimeSlot> slots;
+    private final int[] startMinutes;
+
+    private AvailabilitySchedule(List<TimeSlot> sortedSlots) {
+        this.slots = Collections.unmodifiableList(sortedSlots);
+        this.startMinutes = new int[sortedSlots.size()];
+        for (int i = 0; i < startMinutes.length; i++) {
+            startMinutes[i] = sortedSlots.get(i).getStartMinute();
+        }
+    }
+
+    /**
+     * Build a schedule from a doctor's available time slots
+     * @param slots the slots, in any order; null entries are ignored
+     * @return the schedule
+     */
+    public static AvailabilitySchedule of(Collection<TimeSlot> slots) {
+        if (slots == null || slots.isEmpty()) {
+            return EMPTY;
+        }
+        List<TimeSlot> sorted = new ArrayList<>(slots.size());
+        for (TimeSlot slot : slots) {
+            if (slot != null) {
+                sorted.add(slot);
+            }
+        }
+        Collections.sort(sorted);
+        return new AvailabilitySchedule(sorted);
+    }
+
+    public boolean isEmpty() {
+        return startMinutes.length == 0;
+    }
+
+    public int size() {
+        return startMinutes.length;
+    }
+
+    /**
+     * @param index position in start order
+     * @return the slot at that position
+     */
+    public TimeSlot slotAt(int index) {
+        return slots.get(index);
+    }
+
+    public List<TimeSlot> getSlots() {
+        return slots;
+    }
+
+    /**
+     * @param minuteOfDay minutes since midnight
+     * @return index of the slot starting exactly at that minute, or -1 if there is none
+     */
+    public int indexOfStart(int minuteOfDay) {
+        int index = Arrays.binarySearch(startMinutes, minuteOfDay);
+        return index >= 0 ? index : -1;
+    }
+
+    public boolean hasSlotStartingAt(int minuteOfDay) {
+        return indexOfStart(minuteOfDay) >= 0;
+    }
+
+    public boolean hasSlotStartingBefore(int minuteOfDay) {
+        return startMinutes.length > 0 && startMinutes[0] < minuteOfDay;
+    }
+
+    public boolean hasSlotStartingAtOrAfter(int minuteOfDay) {
+        return startMinutes.length > 0 && startMinutes[startMinutes.length - 1] >= minuteOfDay;
+    }
+}
@@ -5,11 +5,12 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
 @Entity
-@Table(name = "doctors")
+@Table(name = "doctors", indexes = @Index(name = "idx_doctor_specialty", columnList = "specialty"))
 public class Doctor {
     
     @Id
@@ -46,7 +47,11 @@ public class Doctor {
     @CollectionTable(name = "doctor_available_times", 
                      joinColumns = @JoinColumn(name = "doctor_id"))
     @Column(name = "available_time")
-    private List<String> availableTimes;
+    @Convert(converter = TimeSlotConverter.class)
+    private List<TimeSlot> availableTimes;
+    
+    @Transient
+    private AvailabilitySchedule schedule;
     
     public Doctor() {}
     
@@ -106,11 +111,23 @@ public class Doctor {
         this.phone = phone;
     }
     
-    public List<String> getAvailableTimes() {
+    public List<TimeSlot> getAvailableTimes() {
         return availableTimes;
     }
     
-    public void setAvailableTimes(List<String> availableTimes) {
+    public void setAvailableTimes(List<TimeSlot> availableTimes) {
         this.availableTimes = availableTimes;
+        this.schedule = null;
+    }
+    
+    /**
+     * Pre-parsed, sorted view of the available times, built on first use
+     */
+    @JsonIgnore
+    public AvailabilitySchedule getSchedule() {
+        if (schedule == null) {
+            schedule = AvailabilitySchedule.of(availableTimes);
+        }
+        return schedule;
     }
 }
\ No newline at end of file
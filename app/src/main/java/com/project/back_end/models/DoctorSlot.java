@@ -0,0 +1,78 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One concrete, bookable occurrence of a doctor's template slot on a specific date.
+ * Rows are generated ahead of time by the slot scheduler; booking flips the state from FREE to BOOKED
+ * with a single conditional UPDATE, so at most one booking can claim a slot.
+ */
+@Entity
+@Table(name = "doctor_slots",
+       uniqueConstraints = @UniqueConstraint(name = "uk_doctor_slot_doctor_time",
+                                             columnNames = {"doctor_id", "slot_time"}),
+       indexes = @Index(name = "idx_doctor_slot_time_state", columnList = "slot_time, state"))
+public class DoctorSlot {
+    
+    public enum State {
+        FREE,
+        BOOKED
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+    
+    @Column(name = "slot_time", nullable = false)
+    private LocalDateTime slotTime;
+    
+    @Column(name = "slot_end", nullable = false)
+    private LocalDateTime slotEnd;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private State state = State.FREE;
+    
+    public DoctorSlot() {}
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public Doctor getDoctor() {
+        return doctor;
+    }
+    
+    public void setDoctor(Doctor doctor) {
+        this.doctor = doctor;
+    }
+    
+    public LocalDateTime getSlotTime() {
+        return slotTime;
+    }
+    
+    public void setSlotTime(LocalDateTime slotTime) {
+        this.slotTime = slotTime;
+    }
+    
+    public LocalDateTime getSlotEnd() {
+        return slotEnd;
+    }
+    
+    public void setSlotEnd(LocalDateTime slotEnd) {
+        this.slotEnd = slotEnd;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public void setState(State state) {
+        this.state = state;
+    }
+}
@@ -7,7 +7,7 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = @Index(name = "idx_patient_phone", columnList = "phone"))
 public class Patient {
     
     @Id
@@ -0,0 +1,102 @@
+package com.project.back_end.models;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.LocalTime;
+
+/**
+ * A doctor's bookable time slot within a day, stored as minute-of-day bounds.
+ * Its text form is "HH:mm-HH:mm", which is how it is persisted and serialized.
+ */
+public final class TimeSlot implements Comparable<TimeSlot> {
+
+    private static final int DEFAULT_DURATION_MINUTES = 60;
+
+    private final int startMinute;
+    private final int endMinute;
+
+    private TimeSlot(int startMinute, int endMinute) {
+        if (startMinute < 0 || endMinute > 24 * 60 || endMinute <= startMinute) {
+            throw new IllegalArgumentException("Invalid time slot bounds: " + startMinute + "-" + endMinute);
+        }
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    public static TimeSlot of(LocalTime start, LocalTime end) {
+        return new TimeSlot(minuteOfDay(start), end.equals(LocalTime.MIDNIGHT) ? 24 * 60 : minuteOfDay(end));
+    }
+
+    /**
+     * Parse a slot written as "09:00-10:00" or "09:00 - 10:00"; a bare "09:00" is a one-hour slot
+     * @param value the slot text
+     * @return the parsed slot
+     * @throws IllegalArgumentException if the text is not a valid slot
+     */
+    @JsonCreator
+    public static TimeSlot parse(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Time slot is required");
+        }
+        try {
+            int separator = value.indexOf('-');
+            if (separator < 0) {
+                int start = minuteOfDay(LocalTime.parse(value.trim()));
+                return new TimeSlot(start, Math.min(start + DEFAULT_DURATION_MINUTES, 24 * 60));
+            }
+            LocalTime start = LocalTime.parse(value.substring(0, separator).trim());
+            LocalTime end = LocalTime.parse(value.substring(separator + 1).trim());
+            return of(start, end);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid time slot: " + value, e);
+        }
+    }
+
+    public static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    public LocalTime getStart() {
+        return LocalTime.of(startMinute / 60, startMinute % 60);
+    }
+
+    @Override
+    public int compareTo(TimeSlot other) {
+        int byStart = Integer.compare(startMinute, other.startMinute);
+        return byStart != 0 ? byStart : Integer.compare(endMinute, other.endMinute);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimeSlot)) {
+            return false;
+        }
+        TimeSlot other = (TimeSlot) o;
+        return startMinute == other.startMinute && endMinute == other.endMinute;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * startMinute + endMinute;
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        int end = endMinute % (24 * 60); // a slot ending at midnight is written as "00:00"
+        return String.format("%02d:%02d-%02d:%02d",
+                startMinute / 60, startMinute % 60, end / 60, end % 60);
+    }
+}
@@ -0,0 +1,21 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Parses the "HH:mm-HH:mm" text stored in doctor_available_times once, when the doctor is loaded
+ */
+@Converter
+public class TimeSlotConverter implements AttributeConverter<TimeSlot, String> {
+
+    @Override
+    public String convertToDatabaseColumn(TimeSlot slot) {
+        return slot != null ? slot.toString() : null;
+    }
+
+    @Override
+    public TimeSlot convertToEntityAttribute(String value) {
+        return value != null ? TimeSlot.parse(value) : null;
+    }
+}
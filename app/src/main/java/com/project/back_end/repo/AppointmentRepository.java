@@ -1,6 +1,10 @@
 package com.project.back_end.repo;
 
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.DTO.BookedSlot;
+import com.project.back_end.DTO.DoctorBookingCount;
 import com.project.back_end.models.Appointment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +13,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -30,6 +35,35 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
     
+    /**
+     * Retrieve the booked slots of several doctors over a time range in a single query
+     * @param doctorIds the IDs of the doctors
+     * @param start start of the time range (inclusive)
+     * @param end end of the time range (exclusive)
+     * @return doctor ID and appointment time of every appointment in the range
+     */
+    @Query("SELECT a.doctor.id AS doctorId, a.appointmentTime AS appointmentTime " +
+           "FROM Appointment a " +
+           "WHERE a.doctor.id IN :doctorIds " +
+           "AND a.appointmentTime >= :start AND a.appointmentTime < :end")
+    List<BookedSlot> findBookedSlots(
+            @Param("doctorIds") Collection<Long> doctorIds,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+    
+    /**
+     * Retrieve the booked slots of all doctors over a time range in a single query
+     * @param start start of the time range (inclusive)
+     * @param end end of the time range (exclusive)
+     * @return doctor ID and appointment time of every appointment in the range
+     */
+    @Query("SELECT a.doctor.id AS doctorId, a.appointmentTime AS appointmentTime " +
+           "FROM Appointment a " +
+           "WHERE a.appointmentTime >= :start AND a.appointmentTime < :end")
+    List<BookedSlot> findBookedSlotsBetween(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+    
     /**
      * Filter appointments by doctor ID, partial patient name (case-insensitive), and time range
      * @param doctorId the ID of the doctor
@@ -50,6 +84,35 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
     
+    /**
+     * Filter appointments by doctor ID, a set of patients, and time range
+     * @param doctorId the ID of the doctor
+     * @param patientIds the IDs of the patients
+     * @param start start of the time range
+     * @param end end of the time range
+     * @return filtered list of appointments
+     */
+    @Query("SELECT a FROM Appointment a " +
+           "LEFT JOIN FETCH a.patient p " +
+           "LEFT JOIN FETCH a.doctor d " +
+           "WHERE a.doctor.id = :doctorId " +
+           "AND p.id IN :patientIds " +
+           "AND a.appointmentTime BETWEEN :start AND :end")
+    List<Appointment> findByDoctorIdAndPatientIdInAndAppointmentTimeBetween(
+            @Param("doctorId") Long doctorId,
+            @Param("patientIds") Collection<Long> patientIds,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+    
+    /**
+     * Count the appointments of every doctor, as their booking popularity
+     * @return one row per doctor with at least one appointment
+     */
+    @Query("SELECT a.doctor.id AS doctorId, COUNT(a) AS bookings " +
+           "FROM Appointment a " +
+           "GROUP BY a.doctor.id")
+    List<DoctorBookingCount> countBookingsByDoctor();
+    
     /**
      * Delete all appointments related to a specific doctor
      * @param doctorId the ID of the doctor
@@ -60,50 +123,145 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     void deleteAllByDoctorId(@Param("doctorId") Long doctorId);
     
     /**
-     * Find all appointments for a specific patient
+     * Lock a patient's appointment and return the slot it occupies.
+     * Must run inside a transaction; the row stays locked until it ends.
+     * @param id the ID of the appointment
+     * @param patientId the ID of the patient who must own it
+     * @return the slot, or null if no such appointment belongs to the patient
+     */
+    @Query(value = "SELECT doctor_id AS doctorId, appointment_time AS appointmentTime " +
+                   "FROM appointments WHERE id = :id AND patient_id = :patientId FOR UPDATE",
+           nativeQuery = true)
+    BookedSlot lockOwnedSlot(@Param("id") Long id, @Param("patientId") Long patientId);
+    
+    /**
+     * Delete an appointment only if it belongs to the patient
+     * @param id the ID of the appointment
+     * @param patientId the ID of the patient
+     * @return 1 if deleted, 0 if it does not exist or belongs to someone else
+     */
+    @Modifying
+    @Query("DELETE FROM Appointment a WHERE a.id = :id AND a.patient.id = :patientId")
+    int deleteOwned(@Param("id") Long id, @Param("patientId") Long patientId);
+    
+    /**
+     * Reschedule an appointment only if it belongs to the patient
+     * @param id the ID of the appointment
+     * @param patientId the ID of the patient
+     * @param doctorId the ID of the (possibly new) doctor
+     * @param appointmentTime the (possibly new) start time
+     * @param status the appointment status
+     * @return 1 if updated, 0 if it does not exist or belongs to someone else
+     */
+    @Modifying
+    @Query(value = "UPDATE appointments SET doctor_id = :doctorId, appointment_time = :appointmentTime, status = :status " +
+                   "WHERE id = :id AND patient_id = :patientId",
+           nativeQuery = true)
+    int updateOwned(@Param("id") Long id, @Param("patientId") Long patientId, @Param("doctorId") Long doctorId,
+                    @Param("appointmentTime") LocalDateTime appointmentTime, @Param("status") int status);
+    
+    /**
+     * Find one page of a patient's appointments, projected straight into DTOs
      * @param patientId the ID of the patient
-     * @return list of appointments for the patient
+     * @param afterTime appointment time of the keyset position to continue after
+     * @param afterId appointment ID of the keyset position to continue after
+     * @param page limits the number of rows; only its size is used
+     * @return appointments after the position, ordered by appointment time and ID
      */
-    List<Appointment> findByPatientId(Long patientId);
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(" +
+           "a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) " +
+           "FROM Appointment a " +
+           "JOIN a.doctor d " +
+           "JOIN a.patient p " +
+           "WHERE p.id = :patientId " +
+           "AND (a.appointmentTime > :afterTime " +
+           "OR (a.appointmentTime = :afterTime AND a.id > :afterId)) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentDTO> findByPatientId(
+            @Param("patientId") Long patientId,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable page);
     
     /**
-     * Retrieve appointments for a patient by status, ordered by appointment time
+     * Retrieve one page of a patient's appointments that started before a point in time, projected straight into DTOs
      * @param patientId the ID of the patient
-     * @param status the status of appointments to find
-     * @return sorted list of appointments
+     * @param before the cut-off time (exclusive), normally now
+     * @param afterTime appointment time of the keyset position to continue after
+     * @param afterId appointment ID of the keyset position to continue after
+     * @param page limits the number of rows; only its size is used
+     * @return appointments after the position, ordered by appointment time and ID
      */
-    List<Appointment> findByPatient_IdAndStatusOrderByAppointmentTimeAsc(Long patientId, int status);
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(" +
+           "a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) " +
+           "FROM Appointment a " +
+           "JOIN a.doctor d " +
+           "JOIN a.patient p " +
+           "WHERE p.id = :patientId " +
+           "AND a.appointmentTime < :before " +
+           "AND (a.appointmentTime > :afterTime " +
+           "OR (a.appointmentTime = :afterTime AND a.id > :afterId)) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentDTO> findPastByPatientId(
+            @Param("patientId") Long patientId,
+            @Param("before") LocalDateTime before,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable page);
     
     /**
-     * Search appointments by partial doctor name and patient ID
+     * Search one page of appointments by partial doctor name and patient ID, projected straight into DTOs
      * @param doctorName partial doctor name to search for
      * @param patientId the ID of the patient
-     * @return filtered list of appointments
+     * @param afterTime appointment time of the keyset position to continue after
+     * @param afterId appointment ID of the keyset position to continue after
+     * @param page limits the number of rows; only its size is used
+     * @return filtered appointments after the position, ordered by appointment time and ID
      */
-    @Query("SELECT a FROM Appointment a " +
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(" +
+           "a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) " +
+           "FROM Appointment a " +
            "JOIN a.doctor d " +
            "JOIN a.patient p " +
            "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) " +
-           "AND p.id = :patientId")
-    List<Appointment> filterByDoctorNameAndPatientId(
+           "AND p.id = :patientId " +
+           "AND (a.appointmentTime > :afterTime " +
+           "OR (a.appointmentTime = :afterTime AND a.id > :afterId)) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentDTO> filterByDoctorNameAndPatientId(
             @Param("doctorName") String doctorName,
-            @Param("patientId") Long patientId);
+            @Param("patientId") Long patientId,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable page);
     
     /**
-     * Filter appointments by doctor name, patient ID, and status
+     * Filter one page of a patient's appointments by doctor name that started before a point in time,
+     * projected straight into DTOs
      * @param doctorName partial doctor name to search for
      * @param patientId the ID of the patient
-     * @param status the status to filter by
-     * @return filtered list of appointments
+     * @param before the cut-off time (exclusive), normally now
+     * @param afterTime appointment time of the keyset position to continue after
+     * @param afterId appointment ID of the keyset position to continue after
+     * @param page limits the number of rows; only its size is used
+     * @return filtered appointments after the position, ordered by appointment time and ID
      */
-    @Query("SELECT a FROM Appointment a " +
+    @Query("SELECT new com.project.back_end.DTO.AppointmentDTO(" +
+           "a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) " +
+           "FROM Appointment a " +
            "JOIN a.doctor d " +
            "JOIN a.patient p " +
            "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) " +
            "AND p.id = :patientId " +
-           "AND a.status = :status")
-    List<Appointment> filterByDoctorNameAndPatientIdAndStatus(
+           "AND a.appointmentTime < :before " +
+           "AND (a.appointmentTime > :afterTime " +
+           "OR (a.appointmentTime = :afterTime AND a.id > :afterId)) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentDTO> filterPastByDoctorNameAndPatientId(
             @Param("doctorName") String doctorName,
             @Param("patientId") Long patientId,
-            @Param("status") int status);
+            @Param("before") LocalDateTime before,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable page);
 }
\ No newline at end of file
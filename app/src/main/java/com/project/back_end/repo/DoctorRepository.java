@@ -1,5 +1,6 @@
 package com.project.back_end.repo;
 
+import com.project.back_end.DTO.DoctorSummary;
 import com.project.back_end.models.Doctor;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -27,22 +28,39 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findByNameLike(@Param("name") String name);
     
     /**
-     * Filter doctors by partial name and exact specialty (case-insensitive)
+     * Filter doctors by partial name and specialty.
+     * The specialty is compared without LOWER() so its index can be used; the column collation already ignores case.
      * @param name partial name to search for
      * @param specialty specialty to filter by
      * @return list of filtered doctors
      */
     @Query("SELECT d FROM Doctor d " +
-           "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :name, '%')) " +
-           "AND LOWER(d.specialty) = LOWER(:specialty)")
-    List<Doctor> findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(
+           "WHERE d.specialty = :specialty " +
+           "AND LOWER(d.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<Doctor> findByNameContainingIgnoreCaseAndSpecialty(
             @Param("name") String name,
             @Param("specialty") String specialty);
     
     /**
-     * Find doctors by specialty, ignoring case
+     * Find doctors by specialty; the column collation ignores case, so the plain equality matches any case and uses the index
      * @param specialty specialty to search for
      * @return list of doctors with the given specialty
      */
-    List<Doctor> findBySpecialtyIgnoreCase(String specialty);
-}
\ No newline at end of file
+    @Query("SELECT d FROM Doctor d WHERE d.specialty = :specialty")
+    List<Doctor> findBySpecialty(@Param("specialty") String specialty);
+    
+    /**
+     * Load every doctor together with their available times in a single query
+     * @return list of all doctors with initialized available times
+     */
+    @Query("SELECT DISTINCT d FROM Doctor d LEFT JOIN FETCH d.availableTimes")
+    List<Doctor> findAllWithAvailableTimes();
+    
+    /**
+     * Load every doctor projected to the columns of the directory listing
+     * @return summaries of all doctors, without available times
+     */
+    @Query("SELECT new com.project.back_end.DTO.DoctorSummary(d.id, d.name, d.specialty, d.email, d.phone) " +
+           "FROM Doctor d")
+    List<DoctorSummary> findAllSummaries();
+}
@@ -0,0 +1,113 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.DoctorSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DoctorSlotRepository extends JpaRepository<DoctorSlot, Long> {
+    
+    /**
+     * Claim a free slot; the conditional update is atomic, so only one concurrent caller can succeed
+     * @param doctorId the ID of the doctor
+     * @param slotTime start of the slot
+     * @return 1 if the slot was claimed, 0 if it does not exist or is already booked
+     */
+    @Modifying
+    @Query(value = "UPDATE doctor_slots SET state = 'BOOKED' " +
+                   "WHERE doctor_id = :doctorId AND slot_time = :slotTime AND state = 'FREE'",
+           nativeQuery = true)
+    int claim(@Param("doctorId") Long doctorId, @Param("slotTime") LocalDateTime slotTime);
+    
+    /**
+     * Claim several free slots of a doctor at once; callers check that every slot was claimed and roll back otherwise
+     * @param doctorId the ID of the doctor
+     * @param slotTimes starts of the slots
+     * @return number of slots claimed
+     */
+    @Modifying
+    @Query(value = "UPDATE doctor_slots SET state = 'BOOKED' " +
+                   "WHERE doctor_id = :doctorId AND slot_time IN (:slotTimes) AND state = 'FREE'",
+           nativeQuery = true)
+    int claimAll(@Param("doctorId") Long doctorId, @Param("slotTimes") Collection<LocalDateTime> slotTimes);
+    
+    /**
+     * Find the start times of a doctor's slots in a given state within a time range
+     * @param doctorId the ID of the doctor
+     * @param from start of the range (inclusive)
+     * @param to end of the range (inclusive)
+     * @param state the slot state
+     * @return slot start times
+     */
+    @Query("SELECT s.slotTime FROM DoctorSlot s " +
+           "WHERE s.doctor.id = :doctorId AND s.slotTime BETWEEN :from AND :to AND s.state = :state")
+    List<LocalDateTime> findSlotTimes(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to, @Param("state") DoctorSlot.State state);
+    
+    /**
+     * Release the slot an appointment occupies, only if the appointment belongs to the patient.
+     * Must run before the appointment is moved or deleted, since the slot is found through its doctor and time.
+     * @param appointmentId the ID of the appointment
+     * @param patientId the ID of the patient who must own it
+     * @return 1 if the slot was released, 0 otherwise
+     */
+    @Modifying
+    @Query(value = "UPDATE doctor_slots s JOIN appointments a " +
+                   "ON a.doctor_id = s.doctor_id AND a.appointment_time = s.slot_time " +
+                   "SET s.state = 'FREE' " +
+                   "WHERE a.id = :appointmentId AND a.patient_id = :patientId AND s.state = 'BOOKED'",
+           nativeQuery = true)
+    int releaseOwned(@Param("appointmentId") Long appointmentId, @Param("patientId") Long patientId);
+    
+    /**
+     * Lock the first free slot at a time among several doctors, skipping slots other transactions are claiming.
+     * Must run inside a transaction; the returned slot stays locked until it ends.
+     * @param doctorIds the IDs of the candidate doctors
+     * @param slotTime start of the slot
+     * @return the ID of the doctor whose slot was locked, or null if none is free
+     */
+    @Query(value = "SELECT doctor_id FROM doctor_slots " +
+                   "WHERE doctor_id IN (:doctorIds) AND slot_time = :slotTime AND state = 'FREE' " +
+                   "ORDER BY doctor_id LIMIT 1 " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Long lockFirstFree(@Param("doctorIds") Collection<Long> doctorIds, @Param("slotTime") LocalDateTime slotTime);
+    
+    /**
+     * Delete a doctor's free slots from a point in time on, before regenerating them from a changed template
+     * @param doctorId the ID of the doctor
+     * @param from start of the range (inclusive)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM doctor_slots WHERE doctor_id = :doctorId AND slot_time >= :from AND state = 'FREE'",
+           nativeQuery = true)
+    void deleteFreeFrom(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from);
+    
+    /**
+     * Delete all slots of a doctor
+     * @param doctorId the ID of the doctor
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DoctorSlot s WHERE s.doctor.id = :doctorId")
+    void deleteAllByDoctorId(@Param("doctorId") Long doctorId);
+    
+    /**
+     * Delete slots that have already started; they can no longer be booked
+     * @param before the cut-off time (exclusive)
+     * @return number of deleted slots
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DoctorSlot s WHERE s.slotTime < :before")
+    int deleteAllBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,13 @@
 package com.project.back_end.repo;
 
+import com.project.back_end.DTO.PatientName;
 import com.project.back_end.models.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     
@@ -21,4 +25,11 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
      * @return the Patient entity if found
      */
     Patient findByEmailOrPhone(String email, String phone);
+    
+    /**
+     * Load the ID and name of every patient, for the in-memory name index
+     * @return ID and name of all patients
+     */
+    @Query("SELECT p.id AS id, p.name AS name FROM Patient p")
+    List<PatientName> findAllNames();
 }
\ No newline at end of file
@@ -2,17 +2,35 @@ package com.project.back_end.repo;
 
 import com.project.back_end.models.Prescription;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PrescriptionRepository extends MongoRepository<Prescription, String> {
     
     /**
-     * Find prescriptions associated with a specific appointment
+     * Find the prescription of an appointment; served by the unique appointmentId index
      * @param appointmentId the ID of the appointment
-     * @return list of prescriptions for the appointment
+     * @return the prescription, if one was written
      */
-    List<Prescription> findByAppointmentId(Long appointmentId);
-}
\ No newline at end of file
+    Optional<Prescription> findFirstByAppointmentId(Long appointmentId);
+    
+    /**
+     * Find the prescriptions of several appointments with one $in query
+     * @param appointmentIds the IDs of the appointments
+     * @return the prescriptions found, at most one per appointment
+     */
+    List<Prescription> findByAppointmentIdIn(Collection<Long> appointmentIds);
+    
+    /**
+     * Find which of several appointments have a prescription; only appointmentId is returned, read from the index
+     * @param appointmentIds the IDs of the appointments
+     * @return prescriptions with only appointmentId set
+     */
+    @Query(value = "{ 'appointmentId': { $in: ?0 } }", fields = "{ 'appointmentId': 1, '_id': 0 }")
+    List<Prescription> findAppointmentIdsByAppointmentIdIn(Collection<Long> appointmentIds);
+}
@@ -0,0 +1,38 @@
+package com.project.back_end.security;
+
+public class AuthenticatedPrincipal {
+
+    private final String role;
+    private final Long id;
+    private final String email;
+
+    public AuthenticatedPrincipal(String role, Long id, String email) {
+        this.role = role;
+        this.id = id;
+        this.email = email;
+    }
+
+    /**
+     * Check whether the principal was authenticated for the given role
+     * @param role admin, doctor or patient
+     * @return true if the token was issued for this role
+     */
+    public boolean hasRole(String role) {
+        return this.role.equalsIgnoreCase(role);
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the token subject: the username for admins, the email for doctors and patients
+     */
+    public String getEmail() {
+        return email;
+    }
+}
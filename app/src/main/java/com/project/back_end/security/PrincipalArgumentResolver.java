@@ -0,0 +1,63 @@
+package com.project.back_end.security;
+
+import com.project.back_end.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves the {@code {token}} path variable into an {@link AuthenticatedPrincipal} for controller methods.
+ * The token is verified once per request and the result is kept as a request attribute,
+ * so controllers and the services they call never parse the token again.
+ * Resolves to null when the request carries no valid token.
+ */
+@Component
+public class PrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String TOKEN_VARIABLE = "token";
+    private static final String PRINCIPAL_ATTRIBUTE = AuthenticatedPrincipal.class.getName();
+
+    private final TokenService tokenService;
+
+    public PrincipalArgumentResolver(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public boolean supportsParameter(@NonNull MethodParameter parameter) {
+        return AuthenticatedPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(@NonNull MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  @NonNull NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        if (request == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Optional<AuthenticatedPrincipal> cached = (Optional<AuthenticatedPrincipal>) request.getAttribute(PRINCIPAL_ATTRIBUTE);
+        if (cached == null) {
+            cached = Optional.ofNullable(tokenService.resolvePrincipal(extractToken(request)));
+            request.setAttribute(PRINCIPAL_ATTRIBUTE, cached);
+        }
+        return cached.orElse(null);
+    }
+
+    private String extractToken(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> uriVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return uriVariables != null ? uriVariables.get(TOKEN_VARIABLE) : null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.project.back_end.services;
+
+import com.project.back_end.dto.AppointmentDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a list of appointments ordered by (appointment time, id).
+ * A page continues strictly after the position; the first page starts after {@link #START}.
+ */
+public final class AppointmentCursor {
+
+    /** Sorts before every stored appointment (MySQL DATETIME starts at year 1000) */
+    public static final AppointmentCursor START = new AppointmentCursor(LocalDateTime.of(1000, 1, 1, 0, 0), 0L);
+
+    private final LocalDateTime appointmentTime;
+    private final Long id;
+
+    private AppointmentCursor(LocalDateTime appointmentTime, Long id) {
+        this.appointmentTime = appointmentTime;
+        this.id = id;
+    }
+
+    /**
+     * @param last the last appointment of the current page
+     * @return the position right after it
+     */
+    public static AppointmentCursor after(AppointmentDTO last) {
+        return new AppointmentCursor(last.getAppointmentTime(), last.getId());
+    }
+
+    /**
+     * Decode a cursor returned by a previous page
+     * @param value the encoded cursor, or null/empty for the first page
+     * @return the decoded position
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static AppointmentCursor decode(String value) {
+        if (value == null || value.isEmpty()) {
+            return START;
+        }
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = text.lastIndexOf('|');
+            return new AppointmentCursor(LocalDateTime.parse(text.substring(0, separator)),
+                    Long.parseLong(text.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+
+    /**
+     * @param time the earliest appointment time wanted
+     * @return this position, or the position right before the first appointment at that time if this one is earlier
+     */
+    public AppointmentCursor notBefore(LocalDateTime time) {
+        return appointmentTime.isBefore(time) ? new AppointmentCursor(time, 0L) : this;
+    }
+
+    public String encode() {
+        String text = appointmentTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getAppointmentTime() {
+        return appointmentTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
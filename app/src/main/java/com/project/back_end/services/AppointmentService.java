@@ -1,22 +1,36 @@
 package com.project.back_end.services;
 
+import com.project.back_end.dto.AppointmentSeriesRequest;
+import com.project.back_end.dto.BookedSlot;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Doctor;
-import com.project.back_end.models.Patient;
+import com.project.back_end.models.DoctorSlot;
+import com.project.back_end.models.TimeSlot;
 import com.project.back_end.repositories.AppointmentRepository;
 import com.project.back_end.repositories.DoctorRepository;
+import com.project.back_end.repositories.DoctorSlotRepository;
 import com.project.back_end.repositories.PatientRepository;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AppointmentService {
@@ -31,72 +45,398 @@ public class AppointmentService {
     private DoctorRepository doctorRepository;
     
     @Autowired
-    private TokenService tokenService;
+    private AvailabilityCache availabilityCache;
+    
+    @Autowired
+    private DoctorSlotRepository doctorSlotRepository;
+    
+    @Autowired
+    private SlotScheduler slotScheduler;
+    
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+    
+    @Autowired
+    private SlotHoldRegistry slotHoldRegistry;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PatientNameIndex patientNameIndex;
+    
+    @Autowired
+    private DoctorSuggestIndex doctorSuggestIndex;
+    
+    @Autowired
+    private SlotBookingIndex slotBookingIndex;
+    
+    @Autowired
+    private WaitingRoom waitingRoom;
+    
+    /** Above this many name matches the IN list stops paying off and the LIKE query is used instead */
+    private static final int MAX_PATIENT_CANDIDATES = 1000;
+    
+    /** Upper bound on the appointments of one series, a year of weekly visits */
+    public static final int MAX_SERIES_OCCURRENCES = 52;
+    
+    private static final String INSERT_APPOINTMENT =
+            "INSERT INTO appointments (doctor_id, patient_id, appointment_time, status) VALUES (?, ?, ?, 0)";
     
     /**
-     * Books a new appointment
-     * @param appointment The appointment object to book
-     * @return 1 if successful, 0 if there's an error
+     * Books a new appointment for the authenticated patient.
+     * The slot is claimed with one conditional UPDATE on doctor_slots, which only one concurrent booking can win;
+     * the INSERT follows in the same transaction. Doctor and patient are attached as references, without SELECTs.
+     * @param appointment The appointment object to book, already validated against the doctor's schedule
+     * @param patientId The ID of the patient booking the appointment
+     * @return 1 if successful, -1 if the slot is already taken or held by another patient, 0 if there's an error
      */
-    public int bookAppointment(Appointment appointment) {
+    public int bookAppointment(Appointment appointment, Long patientId) {
+        Long doctorId = appointment.getDoctor().getId();
+        appointment.setAppointmentTime(appointment.getAppointmentTime().truncatedTo(ChronoUnit.MINUTES));
+        if (slotHoldRegistry.isHeldByOther(doctorId, appointment.getAppointmentTime(), patientId)) {
+            return -1;
+        }
         try {
-            // Validate that doctor exists
-            Optional<Doctor> doctor = doctorRepository.findById(appointment.getDoctor().getId());
-            if (doctor.isEmpty()) {
-                return 0; // Doctor not found
+            Boolean booked = transactionTemplate.execute(status -> {
+                if (doctorSlotRepository.claim(doctorId, appointment.getAppointmentTime()) == 0) {
+                    return false; // Slot taken, or not open for booking
+                }
+                appointment.setId(null);
+                appointment.setDoctor(doctorRepository.getReferenceById(doctorId));
+                appointment.setPatient(patientRepository.getReferenceById(patientId));
+                appointmentRepository.saveAndFlush(appointment);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(booked)) {
+                return -1;
+            }
+            slotHoldRegistry.releaseSlot(doctorId, appointment.getAppointmentTime(), patientId);
+            recordBooked(doctorId, appointment.getAppointmentTime());
+            return 1;
+        } catch (Exception e) {
+            if (isSlotConflict(e)) {
+                return -1; // Slot taken by a concurrent booking
             }
+            e.printStackTrace();
+            return 0;
+        }
+    }
+    
+    /**
+     * Books the first doctor of a specialty who is free at the requested time.
+     * Candidate slots are locked with FOR UPDATE SKIP LOCKED, so concurrent requests for the same time
+     * are spread across doctors instead of queueing on the same row. Doctors gated by the waiting room are
+     * left out, as they can only be booked with an admission for that doctor.
+     * @param specialty The specialty of the doctor
+     * @param appointmentTime The requested start time
+     * @param patientId The ID of the patient booking the appointment
+     * @return ResponseEntity with the booked doctor, or an error message
+     */
+    public ResponseEntity<Map<String, Object>> bookAnyDoctor(String specialty, LocalDateTime appointmentTime, Long patientId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (appointmentTime == null) {
+            response.put("message", "Appointment time is required");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        LocalDateTime time = appointmentTime.truncatedTo(ChronoUnit.MINUTES);
+        if (time.isBefore(LocalDateTime.now()) || !slotScheduler.isWithinHorizon(time)) {
+            response.put("message", "Appointment time is not available");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        try {
+            int minute = TimeSlot.minuteOfDay(time.toLocalTime());
+            List<Long> candidates = doctorDirectory
+                    .findWithSlotStartingAt(minute, specialty, slotBookingIndex.bookedAt(time.toLocalDate(), minute))
+                    .stream().map(Doctor::getId)
+                    .filter(id -> !waitingRoom.isGated(id) && !slotHoldRegistry.isHeldByOther(id, time, patientId))
+                    .toList();
             
-            // Validate that patient exists
-            Optional<Patient> patient = patientRepository.findById(appointment.getPatient().getId());
-            if (patient.isEmpty()) {
-                return 0; // Patient not found
+            Long doctorId = candidates.isEmpty() ? null : transactionTemplate.execute(status -> {
+                Long locked = doctorSlotRepository.lockFirstFree(candidates, time);
+                if (locked == null) {
+                    return null;
+                }
+                doctorSlotRepository.claim(locked, time);
+                appointmentRepository.saveAndFlush(new Appointment(
+                        doctorRepository.getReferenceById(locked), patientRepository.getReferenceById(patientId), time));
+                return locked;
+            });
+            
+            if (doctorId == null) {
+                response.put("message", "No doctor is free at that time");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
             }
+            slotHoldRegistry.releaseSlot(doctorId, time, patientId);
+            recordBooked(doctorId, time);
+            
+            response.put("message", "Appointment booked successfully");
+            response.put("doctorId", doctorId);
+            response.put("appointmentTime", time.toString());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
             
-            // Save the appointment
-            appointmentRepository.save(appointment);
-            return 1;
         } catch (Exception e) {
+            if (isSlotConflict(e)) {
+                response.put("message", "Appointment slot already taken");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
             e.printStackTrace();
-            return 0;
+            response.put("message", "Error booking appointment: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Books a recurring series of appointments with one doctor, all or nothing.
+     * All occurrences are checked against one range query on doctor_slots, then claimed with a single UPDATE
+     * and inserted as one JDBC batch, in one transaction that is rolled back unless every slot was claimed.
+     * @param request The doctor, first appointment time, number of occurrences and days between them
+     * @param patientId The ID of the patient booking the series
+     * @return ResponseEntity with the booked times, or an error message listing the unavailable ones
+     */
+    public ResponseEntity<Map<String, Object>> bookSeries(AppointmentSeriesRequest request, Long patientId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (request.getDoctorId() == null || request.getFirstAppointmentTime() == null
+                || request.getOccurrences() < 1 || request.getOccurrences() > MAX_SERIES_OCCURRENCES
+                || request.getIntervalDays() < 1) {
+            response.put("message", "Invalid appointment series");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        Long doctorId = request.getDoctorId();
+        Optional<Doctor> doctor = doctorDirectory.findById(doctorId);
+        if (doctor.isEmpty()) {
+            response.put("message", "Doctor does not exist");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        // Occurrences are whole days apart, so they all start at the same minute of the day
+        LocalDateTime first = request.getFirstAppointmentTime().truncatedTo(ChronoUnit.MINUTES);
+        List<LocalDateTime> times = new ArrayList<>(request.getOccurrences());
+        for (int i = 0; i < request.getOccurrences(); i++) {
+            times.add(first.plusDays((long) i * request.getIntervalDays()));
+        }
+        LocalDateTime last = times.get(times.size() - 1);
+        if (first.isBefore(LocalDateTime.now())
+                || !doctor.get().getSchedule().hasSlotStartingAt(TimeSlot.minuteOfDay(first.toLocalTime()))
+                || !slotScheduler.isWithinHorizon(last)) {
+            response.put("message", "Appointment time is not available");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        try {
+            Set<LocalDateTime> free = new HashSet<>(
+                    doctorSlotRepository.findSlotTimes(doctorId, first, last, DoctorSlot.State.FREE));
+            List<String> unavailable = new ArrayList<>();
+            for (LocalDateTime time : times) {
+                if (!free.contains(time) || slotHoldRegistry.isHeldByOther(doctorId, time, patientId)) {
+                    unavailable.add(time.toString());
+                }
+            }
+            if (!unavailable.isEmpty()) {
+                response.put("message", "Some appointment slots are already taken");
+                response.put("unavailable", unavailable);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            
+            Boolean booked = transactionTemplate.execute(status -> {
+                if (doctorSlotRepository.claimAll(doctorId, times) != times.size()) {
+                    // A slot was taken since the check
+                    status.setRollbackOnly();
+                    return false;
+                }
+                List<Object[]> rows = new ArrayList<>(times.size());
+                for (LocalDateTime time : times) {
+                    rows.add(new Object[]{doctorId, patientId, time});
+                }
+                jdbcTemplate.batchUpdate(INSERT_APPOINTMENT, rows);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(booked)) {
+                response.put("message", "Some appointment slots are already taken");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            
+            List<String> bookedTimes = new ArrayList<>(times.size());
+            for (LocalDateTime time : times) {
+                slotHoldRegistry.releaseSlot(doctorId, time, patientId);
+                recordBooked(doctorId, time);
+                bookedTimes.add(time.toString());
+            }
+            
+            response.put("message", "Appointment series booked successfully");
+            response.put("doctorId", doctorId);
+            response.put("appointmentTimes", bookedTimes);
+            response.put("count", bookedTimes.size());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            
+        } catch (Exception e) {
+            if (isSlotConflict(e)) {
+                response.put("message", "Some appointment slots are already taken");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            e.printStackTrace();
+            response.put("message", "Error booking appointment series: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Holds a free slot for the authenticated patient while they complete the booking
+     * @param appointment The slot to hold (doctor and appointment time), already validated against the doctor's schedule
+     * @param patientId The ID of the patient
+     * @return ResponseEntity with the hold ID and its expiry, or an error message
+     */
+    public ResponseEntity<Map<String, Object>> holdSlot(Appointment appointment, Long patientId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        Long doctorId = appointment.getDoctor().getId();
+        LocalDateTime time = appointment.getAppointmentTime().truncatedTo(ChronoUnit.MINUTES);
+        if (slotBookingIndex.isBooked(time.toLocalDate(), TimeSlot.minuteOfDay(time.toLocalTime()), doctorId)) {
+            response.put("message", "Appointment slot already taken");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         }
+        
+        SlotHoldRegistry.Hold hold;
+        try {
+            hold = slotHoldRegistry.hold(doctorId, time, patientId);
+        } catch (IllegalStateException e) {
+            response.put("message", "Too many held slots; book or release one first");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+        if (hold == null) {
+            response.put("message", "Appointment slot is held by another patient");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        
+        response.put("holdId", hold.getId());
+        response.put("doctorId", doctorId);
+        response.put("appointmentTime", time.toString());
+        response.put("expiresAt", hold.getExpiresAt().toString());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+    
+    /**
+     * Releases a hold placed by the authenticated patient
+     * @param holdId The ID of the hold
+     * @param patientId The ID of the patient
+     * @return ResponseEntity with success or failure message
+     */
+    public ResponseEntity<Map<String, String>> releaseHold(String holdId, Long patientId) {
+        Map<String, String> response = new HashMap<>();
+        if (!slotHoldRegistry.release(holdId, patientId)) {
+            response.put("message", "Hold not found or expired");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("message", "Hold released");
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Updates the in-memory views after a booking has been committed
+     */
+    private void recordBooked(Long doctorId, LocalDateTime time) {
+        availabilityCache.invalidate(doctorId, time.toLocalDate());
+        slotBookingIndex.book(doctorId, time);
+        doctorSuggestIndex.recordBooking(doctorId);
     }
     
     /**
-     * Updates an existing appointment
+     * Reschedules an appointment of the authenticated patient.
+     * The appointment is read and locked by ID and owner in one statement, and rewritten with one conditional UPDATE
+     * whose row count decides ownership; if it moves, the new slot is claimed and the old one released by an
+     * owner-scoped UPDATE in the same transaction.
      * @param appointment The appointment object with updated information
+     * @param principal The authenticated patient
      * @return ResponseEntity with success or failure message
      */
-    public ResponseEntity<Map<String, String>> updateAppointment(Appointment appointment) {
+    public ResponseEntity<Map<String, String>> updateAppointment(Appointment appointment, AuthenticatedPrincipal principal) {
         Map<String, String> response = new HashMap<>();
         
+        if (appointment.getId() == null || appointment.getAppointmentTime() == null
+                || appointment.getDoctor() == null || appointment.getDoctor().getId() == null) {
+            response.put("message", "Invalid appointment data");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        // Patient ID resolved from the request's token
+        Long patientId = principal != null && principal.hasRole("patient") ? principal.getId() : null;
+        if (patientId == null) {
+            response.put("message", "Unauthorized to update this appointment");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        // Validate the appointment
+        if (!validateAppointment(appointment)) {
+            response.put("message", "Invalid appointment data");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        Long doctorId = appointment.getDoctor().getId();
+        if (doctorDirectory.findById(doctorId).isEmpty()) {
+            response.put("message", "Doctor not found");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
         try {
-            // Check if appointment exists
-            Optional<Appointment> existingAppointment = appointmentRepository.findById(appointment.getId());
-            if (existingAppointment.isEmpty()) {
-                response.put("message", "Appointment not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
+            LocalDateTime time = appointment.getAppointmentTime().truncatedTo(ChronoUnit.MINUTES);
+            AtomicReference<BookedSlot> previous = new AtomicReference<>();
             
-            // Validate the appointment
-            if (!validateAppointment(appointment)) {
-                response.put("message", "Invalid appointment data");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
+            // 1 = updated, 0 = not found or not the patient's, -1 = new slot taken or held by another patient
+            Integer result = transactionTemplate.execute(status -> {
+                BookedSlot owned = appointmentRepository.lockOwnedSlot(appointment.getId(), patientId);
+                if (owned == null) {
+                    return 0;
+                }
+                boolean moved = !owned.getDoctorId().equals(doctorId) || !owned.getAppointmentTime().equals(time);
+                if (moved) {
+                    if (slotHoldRegistry.isHeldByOther(doctorId, time, patientId)
+                            || doctorSlotRepository.claim(doctorId, time) == 0) {
+                        return -1;
+                    }
+                    doctorSlotRepository.releaseOwned(appointment.getId(), patientId);
+                }
+                if (appointmentRepository.updateOwned(appointment.getId(), patientId, doctorId, time,
+                        appointment.getStatus()) == 0) {
+                    status.setRollbackOnly();
+                    return 0;
+                }
+                previous.set(owned);
+                return 1;
+            });
             
-            // Check if doctor exists
-            Optional<Doctor> doctor = doctorRepository.findById(appointment.getDoctor().getId());
-            if (doctor.isEmpty()) {
-                response.put("message", "Doctor not found");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            if (result == null || result == 0) {
+                return notOwned(appointment.getId(), "Unauthorized to update this appointment", response);
+            }
+            if (result == -1) {
+                response.put("message", "Appointment slot already taken");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
             }
             
-            // Save the updated appointment
-            appointmentRepository.save(appointment);
+            // Both the old and the new slot changed
+            BookedSlot old = previous.get();
+            if (!old.getDoctorId().equals(doctorId) || !old.getAppointmentTime().equals(time)) {
+                slotHoldRegistry.releaseSlot(doctorId, time, patientId);
+                availabilityCache.invalidate(old.getDoctorId(), old.getAppointmentTime().toLocalDate());
+                availabilityCache.invalidate(doctorId, time.toLocalDate());
+                slotBookingIndex.release(old.getDoctorId(), old.getAppointmentTime());
+                slotBookingIndex.book(doctorId, time);
+            }
             
             response.put("message", "Appointment updated successfully");
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
+            if (isSlotConflict(e)) {
+                response.put("message", "Appointment slot already taken");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
             e.printStackTrace();
             response.put("message", "Error updating appointment: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
@@ -104,36 +444,43 @@ public class AppointmentService {
     }
     
     /**
-     * Cancels an existing appointment
+     * Cancels an appointment of the authenticated patient.
+     * The appointment is read and locked by ID and owner, its slot freed by an owner-scoped UPDATE and the
+     * appointment deleted with one conditional DELETE whose row count decides ownership, in one transaction.
      * @param id The ID of the appointment to cancel
-     * @param token The authorization token
+     * @param principal The authenticated patient
      * @return ResponseEntity with success or failure message
      */
-    public ResponseEntity<Map<String, String>> cancelAppointment(long id, String token) {
+    public ResponseEntity<Map<String, String>> cancelAppointment(long id, AuthenticatedPrincipal principal) {
         Map<String, String> response = new HashMap<>();
         
+        // Patient ID resolved from the request's token
+        Long patientId = principal != null && principal.hasRole("patient") ? principal.getId() : null;
+        if (patientId == null) {
+            response.put("message", "Unauthorized to cancel this appointment");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
         try {
-            // Find the appointment
-            Optional<Appointment> appointmentOpt = appointmentRepository.findById(id);
-            if (appointmentOpt.isEmpty()) {
-                response.put("message", "Appointment not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            BookedSlot slot = transactionTemplate.execute(status -> {
+                BookedSlot owned = appointmentRepository.lockOwnedSlot(id, patientId);
+                if (owned == null) {
+                    return null;
+                }
+                doctorSlotRepository.releaseOwned(id, patientId);
+                if (appointmentRepository.deleteOwned(id, patientId) == 0) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return owned;
+            });
+            if (slot == null) {
+                return notOwned(id, "Unauthorized to cancel this appointment", response);
             }
             
-            Appointment appointment = appointmentOpt.get();
-            
-            // Extract patient ID from token
-            Long patientIdFromToken = tokenService.extractPatientId(token);
-            
-            // Verify that the patient attempting to cancel is the one who booked it
-            if (patientIdFromToken == null || 
-                !appointment.getPatient().getId().equals(patientIdFromToken)) {
-                response.put("message", "Unauthorized to cancel this appointment");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-            }
-            
-            // Delete the appointment
-            appointmentRepository.delete(appointment);
+            availabilityCache.invalidate(slot.getDoctorId(), slot.getAppointmentTime().toLocalDate());
+            slotBookingIndex.release(slot.getDoctorId(), slot.getAppointmentTime());
+            doctorSuggestIndex.recordCancellation(slot.getDoctorId());
             
             response.put("message", "Appointment cancelled successfully");
             return ResponseEntity.ok(response);
@@ -145,19 +492,32 @@ public class AppointmentService {
         }
     }
     
+    /**
+     * Tells a missing appointment (404) from one that belongs to another patient (401),
+     * after an ownership-scoped statement matched no row
+     */
+    private ResponseEntity<Map<String, String>> notOwned(Long id, String unauthorizedMessage, Map<String, String> response) {
+        if (appointmentRepository.existsById(id)) {
+            response.put("message", unauthorizedMessage);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        response.put("message", "Appointment not found");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+    
     /**
      * Retrieves a list of appointments for a specific doctor on a specific date
      * @param pname Patient name to filter by (can be null or empty)
      * @param date The date for appointments
-     * @param token The authorization token
+     * @param principal The authenticated doctor
      * @return Map containing the list of appointments
      */
-    public Map<String, Object> getAppointment(String pname, LocalDate date, String token) {
+    public Map<String, Object> getAppointment(String pname, LocalDate date, AuthenticatedPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Extract doctor ID from token
-            Long doctorId = tokenService.extractDoctorId(token);
+            // Doctor ID resolved from the request's token
+            Long doctorId = principal != null && principal.hasRole("doctor") ? principal.getId() : null;
             if (doctorId == null) {
                 response.put("error", "Invalid token or not a doctor");
                 return response;
@@ -170,10 +530,19 @@ public class AppointmentService {
             List<Appointment> appointments;
             
             if (pname != null && !pname.trim().isEmpty()) {
-                // Filter by patient name
-                appointments = appointmentRepository
-                    .findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
-                        doctorId, pname.trim(), startOfDay, endOfDay);
+                // Resolve the patient name through the trigram index, then look up by patient ID
+                List<Long> patientIds = patientNameIndex.search(pname.trim());
+                if (patientIds.isEmpty()) {
+                    appointments = Collections.emptyList();
+                } else if (patientIds.size() <= MAX_PATIENT_CANDIDATES) {
+                    appointments = appointmentRepository
+                        .findByDoctorIdAndPatientIdInAndAppointmentTimeBetween(
+                            doctorId, patientIds, startOfDay, endOfDay);
+                } else {
+                    appointments = appointmentRepository
+                        .findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
+                            doctorId, pname.trim(), startOfDay, endOfDay);
+                }
             } else {
                 // Get all appointments for the day
                 appointments = appointmentRepository
@@ -193,6 +562,23 @@ public class AppointmentService {
         return response;
     }
     
+    /**
+     * Whether the failure is a unique constraint on a doctor's slot, i.e. a concurrent booking won the slot.
+     * Other integrity violations, such as a missing patient or doctor row, are errors and not conflicts.
+     */
+    private static boolean isSlotConflict(Exception e) {
+        if (!(e instanceof DataIntegrityViolationException)) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && (message.contains("uk_appointment_doctor_time") || message.contains("uk_doctor_slot_doctor_time"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     /**
      * Validates appointment data
      * @param appointment The appointment to validate
@@ -204,8 +590,8 @@ public class AppointmentService {
             return false;
         }
         
-        // Check if doctor and patient are not null
-        if (appointment.getDoctor() == null || appointment.getPatient() == null) {
+        // Check if doctor is not null; the patient comes from the token
+        if (appointment.getDoctor() == null) {
             return false;
         }
         
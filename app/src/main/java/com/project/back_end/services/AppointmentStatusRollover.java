@@ -0,0 +1,106 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.SchedulingConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Marks elapsed appointments as completed (status 1) in the background.
+ * Each batch is one auto-committed UPDATE ... LIMIT, so row locks are held only for a bounded number of rows
+ * at a time. The WHERE clause itself is the checkpoint: rows already flipped no longer match, so a run that is
+ * cut short, by the per-run batch limit or a restart, simply continues where it stopped on the next run.
+ */
+@Component
+public class AppointmentStatusRollover {
+
+    private static final String COMPLETE_ELAPSED =
+            "UPDATE appointments SET status = 1 " +
+            "WHERE status = 0 AND appointment_time < ? " +
+            "ORDER BY appointment_time LIMIT ?";
+
+    /** Appointments last an hour, see Appointment#getEndTime */
+    private static final long APPOINTMENT_HOURS = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final LongAdder totalCompleted = new LongAdder();
+    private final LongAdder totalBatches = new LongAdder();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunCompleted;
+    private volatile long lastRunMillis;
+    private volatile boolean backlog;
+
+    public AppointmentStatusRollover(JdbcTemplate jdbcTemplate,
+                                     @Value("${appointments.rollover.batch-size:500}") int batchSize,
+                                     @Value("${appointments.rollover.max-batches-per-run:200}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * The single definition of "past": appointments starting before the returned time have ended.
+     * Shared with the patient past/future filters so a completed appointment is always listed as past.
+     * @param now the current time
+     * @return the start time before which appointments are over
+     */
+    public static LocalDateTime completedBefore(LocalDateTime now) {
+        return now.minusHours(APPOINTMENT_HOURS);
+    }
+
+    /**
+     * Completes appointments that ended before now, batch by batch, until none are left or the run's limit is reached.
+     * The first run starts on the batch scheduler right after startup, so catching up never delays readiness.
+     */
+    @Scheduled(initialDelayString = "${appointments.rollover.initial-delay-ms:0}",
+               fixedDelayString = "${appointments.rollover.interval-ms:300000}",
+               scheduler = SchedulingConfig.BATCH_SCHEDULER)
+    public synchronized void run() {
+        long started = System.nanoTime();
+        LocalDateTime cutoff = completedBefore(LocalDateTime.now());
+        long completed = 0;
+        int batches = 0;
+        int updated = batchSize;
+        try {
+            while (updated == batchSize && batches < maxBatchesPerRun) {
+                updated = jdbcTemplate.update(COMPLETE_ELAPSED, cutoff, batchSize);
+                completed += updated;
+                batches++;
+                totalCompleted.add(updated);
+                totalBatches.increment();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            lastRunAt = Instant.now();
+            lastRunCompleted = completed;
+            lastRunMillis = (System.nanoTime() - started) / 1_000_000;
+            backlog = updated == batchSize;
+        }
+    }
+
+    /**
+     * @return progress counters of the job
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalCompleted", totalCompleted.sum());
+        stats.put("totalBatches", totalBatches.sum());
+        stats.put("lastRunAt", lastRunAt != null ? lastRunAt.toString() : null);
+        stats.put("lastRunCompleted", lastRunCompleted);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("backlog", backlog);
+        stats.put("batchSize", batchSize);
+        return stats;
+    }
+}
@@ -0,0 +1,130 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.TimeSlot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache of computed free slots per (doctor, date), kept as TimeSlot objects so readers never parse.
+ * Entries are invalidated by the booking paths and by doctor updates. A per-doctor generation counter
+ * keeps a load that raced with an invalidation from storing a result computed from stale data.
+ */
+@Component
+public class AvailabilityCache {
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, List<TimeSlot>> entries;
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public AvailabilityCache(@Value("${availability.cache.max-size:5000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<TimeSlot>> eldest) {
+                if (size() > AvailabilityCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached free slots, or computes and caches them
+     * @param doctorId the ID of the doctor
+     * @param date the date of the slots
+     * @param loader computes the free slots from the database
+     * @return unmodifiable list of free slots
+     */
+    public List<TimeSlot> get(Long doctorId, LocalDate date, Supplier<List<TimeSlot>> loader) {
+        Key key = new Key(doctorId, date);
+        synchronized (entries) {
+            List<TimeSlot> cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        long generation = generation(doctorId).get();
+        long start = System.nanoTime();
+        List<TimeSlot> loaded = List.copyOf(loader.get());
+        loadNanos.add(System.nanoTime() - start);
+        loads.increment();
+
+        synchronized (entries) {
+            if (generation(doctorId).get() == generation) {
+                entries.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the entry for one doctor and date; call after the change has been committed
+     */
+    public void invalidate(Long doctorId, LocalDate date) {
+        generation(doctorId).incrementAndGet();
+        synchronized (entries) {
+            entries.remove(new Key(doctorId, date));
+        }
+    }
+
+    /**
+     * Drops every entry of a doctor, e.g. after their schedule changed or they were deleted
+     */
+    public void invalidateDoctor(Long doctorId) {
+        generation(doctorId).incrementAndGet();
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+        }
+    }
+
+    /**
+     * @return hit rate, eviction and load-latency metrics
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("loads", loadCount);
+        stats.put("averageLoadMillis", loadCount == 0 ? 0.0 : loadNanos.sum() / 1_000_000.0 / loadCount);
+        return stats;
+    }
+
+    private AtomicLong generation(Long doctorId) {
+        return generations.computeIfAbsent(doctorId, id -> new AtomicLong());
+    }
+
+    private record Key(Long doctorId, LocalDate date) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.AvailabilitySchedule;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.TimeSlot;
+import com.project.back_end.repositories.DoctorRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory, read-only snapshot of all doctors used to answer directory searches without SQL.
+ * The snapshot is immutable and replaced as a whole (copy-on-write) whenever a doctor is saved,
+ * updated or deleted, so readers never need a lock and always see a consistent view.
+ * Name searches go through a trigram index that is built with, and published as part of, each snapshot,
+ * and "who has a slot at this time" is a bitmap lookup by slot start minute.
+ */
+@Component
+public class DoctorDirectory {
+
+    private final DoctorRepository doctorRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    public DoctorDirectory(DoctorRepository doctorRepository) {
+        this.doctorRepository = doctorRepository;
+    }
+
+    /**
+     * Rebuilds the snapshot from the database; runs once at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        snapshot = new Snapshot(doctorRepository.findAllWithAvailableTimes());
+    }
+
+    /**
+     * Adds or replaces a doctor in the directory
+     * @param doctor the saved doctor, with its available times initialized
+     */
+    public synchronized void upsert(Doctor doctor) {
+        Map<Long, Doctor> doctors = new TreeMap<>(snapshot.byId);
+        doctors.put(doctor.getId(), doctor);
+        snapshot = new Snapshot(doctors.values());
+    }
+
+    /**
+     * Removes a doctor from the directory
+     * @param id the ID of the deleted doctor
+     */
+    public synchronized void remove(Long id) {
+        Map<Long, Doctor> doctors = new TreeMap<>(snapshot.byId);
+        doctors.remove(id);
+        snapshot = new Snapshot(doctors.values());
+    }
+
+    /**
+     * Find a doctor by ID
+     * @param id the ID of the doctor
+     * @return the doctor if present in the directory
+     */
+    public Optional<Doctor> findById(Long id) {
+        return id != null ? Optional.ofNullable(snapshot.byId.get(id)) : Optional.empty();
+    }
+
+    /**
+     * One page of the directory by ID keyset
+     * @param afterId ID of the last doctor of the previous page, or 0 for the first page
+     * @param limit maximum number of doctors to return
+     * @return doctors with an ID greater than afterId, ordered by ID
+     */
+    public List<Doctor> findAfter(long afterId, int limit) {
+        List<Doctor> doctors = new ArrayList<>(limit);
+        for (Doctor doctor : snapshot.byId.tailMap(afterId, false).values()) {
+            if (doctors.size() == limit) {
+                break;
+            }
+            doctors.add(doctor);
+        }
+        return doctors;
+    }
+
+    /**
+     * Find doctors matching any combination of partial name, specialty and AM/PM availability
+     * @param name partial name to search for (case-insensitive), or null/empty for any
+     * @param specialty specialty to filter by (case-insensitive), or null/empty for any
+     * @param time "AM" or "PM" to require a slot starting before or after noon, or null/empty for any
+     * @return matching doctors, ordered by ID
+     */
+    public List<Doctor> search(String name, String specialty, String time) {
+        Snapshot current = snapshot;
+
+        BitSet matches;
+        if (specialty != null && !specialty.isEmpty()) {
+            matches = (BitSet) current.bySpecialty.getOrDefault(specialty.toLowerCase(), new BitSet()).clone();
+        } else {
+            matches = (BitSet) current.all.clone();
+        }
+
+        if (time != null && !time.isEmpty()) {
+            if ("AM".equalsIgnoreCase(time)) {
+                matches.and(current.morning);
+            } else if ("PM".equalsIgnoreCase(time)) {
+                matches.and(current.afternoon);
+            } else {
+                matches.clear();
+            }
+        }
+
+        if (name != null && !name.isEmpty()) {
+            matches.and(current.names.search(name));
+        }
+
+        return current.collect(matches);
+    }
+
+    /**
+     * Find doctors whose schedule has a slot starting at the given time of day
+     * @param minuteOfDay start minute of the slot
+     * @param specialty specialty to filter by (case-insensitive), or null/empty for any
+     * @param excluded doctors to leave out, e.g. those already booked at that time on the requested date
+     * @return matching doctors, ordered by ID
+     */
+    public List<Doctor> findWithSlotStartingAt(int minuteOfDay, String specialty, BitSet excluded) {
+        Snapshot current = snapshot;
+
+        BitSet matches = (BitSet) current.bySlotStart.getOrDefault(minuteOfDay, new BitSet()).clone();
+        if (specialty != null && !specialty.isEmpty()) {
+            matches.and(current.bySpecialty.getOrDefault(specialty.toLowerCase(), new BitSet()));
+        }
+        matches.andNot(excluded);
+
+        return current.collect(matches);
+    }
+
+    /**
+     * Immutable view of the doctors, indexed by doctor ID as bit position
+     */
+    private static final class Snapshot {
+
+        private final NavigableMap<Long, Doctor> byId = new TreeMap<>();
+        private final Map<String, BitSet> bySpecialty = new HashMap<>();
+        private final Map<Integer, BitSet> bySlotStart = new HashMap<>();
+        private final BitSet all = new BitSet();
+        private final BitSet morning = new BitSet();
+        private final BitSet afternoon = new BitSet();
+        private final TrigramIndex names = new TrigramIndex();
+
+        // The snapshot is rebuilt on every change anyway, so the name index is rebuilt with it and never mutated once published
+        private Snapshot(Collection<Doctor> doctors) {
+            for (Doctor doctor : doctors) {
+                int bit = Math.toIntExact(doctor.getId());
+                byId.put(doctor.getId(), doctor);
+                names.put(doctor.getId(), doctor.getName());
+                all.set(bit);
+
+                if (doctor.getSpecialty() != null) {
+                    bySpecialty.computeIfAbsent(doctor.getSpecialty().toLowerCase(), key -> new BitSet()).set(bit);
+                }
+
+                AvailabilitySchedule schedule = doctor.getSchedule();
+                if (schedule.hasSlotStartingBefore(AvailabilitySchedule.NOON_MINUTE)) {
+                    morning.set(bit);
+                }
+                if (schedule.hasSlotStartingAtOrAfter(AvailabilitySchedule.NOON_MINUTE)) {
+                    afternoon.set(bit);
+                }
+                for (TimeSlot slot : schedule.getSlots()) {
+                    bySlotStart.computeIfAbsent(slot.getStartMinute(), minute -> new BitSet()).set(bit);
+                }
+            }
+        }
+
+        private List<Doctor> collect(BitSet ids) {
+            List<Doctor> doctors = new ArrayList<>(ids.cardinality());
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                doctors.add(byId.get((long) id));
+            }
+            return doctors;
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.project.back_end.services;
 
 import com.project.back_end.models.Doctor;
 import com.project.back_end.models.Appointment;
+import com.project.back_end.models.AvailabilitySchedule;
+import com.project.back_end.models.TimeSlot;
+import com.project.back_end.dto.BookedSlot;
+import com.project.back_end.dto.DoctorSummary;
 import com.project.back_end.dto.Login;
 import com.project.back_end.repositories.DoctorRepository;
 import com.project.back_end.repositories.AppointmentRepository;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,12 +18,22 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class DoctorService {
 
+    private static final int MAX_AVAILABILITY_RANGE_DAYS = 31;
+    private static final int MAX_AVAILABILITY_DOCTORS = 100;
+    private static final int MAX_NEXT_AVAILABLE_RESULTS = 50;
+
+    /** Page size of the doctor directory when the client does not ask for one */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** Largest directory page a client may request */
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private DoctorRepository doctorRepository;
 
@@ -28,18 +43,68 @@ public class DoctorService {
     @Autowired
     private TokenService tokenService;
 
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Autowired
+    private DoctorSuggestIndex doctorSuggestIndex;
+
+    @Autowired
+    private SlotBookingIndex slotBookingIndex;
+
+    @Autowired
+    private SlotScheduler slotScheduler;
+
+    @Autowired
+    private SlotHoldRegistry slotHoldRegistry;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
     /**
-     * Fetches the available slots for a specific doctor on a given date
+     * Fetches the available slots for a specific doctor on a given date, leaving out slots held by other patients
      */
-    public List<String> getDoctorAvailability(Long doctorId, LocalDate date) {
-        Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
+    public List<String> getDoctorAvailability(Long doctorId, LocalDate date, AuthenticatedPrincipal principal) {
+        Optional<Doctor> doctorOpt = doctorDirectory.findById(doctorId);
         if (doctorOpt.isEmpty()) {
             return Collections.emptyList();
         }
 
-        Doctor doctor = doctorOpt.get();
-        List<String> allAvailableTimes = doctor.getAvailableTimes();
-        if (allAvailableTimes == null || allAvailableTimes.isEmpty()) {
+        List<TimeSlot> freeSlots = availabilityCache.get(doctorId, date, () -> loadDoctorAvailability(doctorOpt.get(), date));
+        return withoutHeldSlots(doctorId, date, freeSlots, viewerId(principal));
+    }
+
+    /**
+     * Removes the slots that other patients currently hold and formats the rest for the response
+     */
+    private List<String> withoutHeldSlots(Long doctorId, LocalDate date, List<TimeSlot> slots, Long patientId) {
+        boolean anyHolds = slotHoldRegistry.size() > 0;
+        List<String> available = new ArrayList<>(slots.size());
+        for (TimeSlot slot : slots) {
+            if (!anyHolds || !slotHoldRegistry.isHeldByOther(doctorId, date.atTime(slot.getStart()), patientId)) {
+                available.add(slot.toString());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * @return the patient's ID if the caller is a patient, so their own holds stay visible to them
+     */
+    private static Long viewerId(AuthenticatedPrincipal principal) {
+        return principal != null && principal.hasRole("patient") ? principal.getId() : null;
+    }
+
+    /**
+     * Computes the free slots of a doctor on a date from their schedule and booked appointments
+     */
+    private List<TimeSlot> loadDoctorAvailability(Doctor doctor, LocalDate date) {
+        Long doctorId = doctor.getId();
+        AvailabilitySchedule schedule = doctor.getSchedule();
+        if (schedule.isEmpty()) {
             return Collections.emptyList();
         }
 
@@ -49,15 +114,205 @@ public class DoctorService {
         List<Appointment> appointments = appointmentRepository
                 .findByDoctorIdAndAppointmentTimeBetween(doctorId, startOfDay, endOfDay);
 
-        // Extract booked times
-        Set<String> bookedTimes = appointments.stream()
-                .map(app -> app.getAppointmentTime().toLocalTime().toString())
-                .collect(Collectors.toSet());
+        // Mark booked start minutes
+        BitSet bookedMinutes = new BitSet(24 * 60);
+        for (Appointment appointment : appointments) {
+            bookedMinutes.set(TimeSlot.minuteOfDay(appointment.getAppointmentTime().toLocalTime()));
+        }
 
-        // Filter available times by removing booked times
-        return allAvailableTimes.stream()
-                .filter(time -> !bookedTimes.contains(time.split(" - ")[0]))
-                .collect(Collectors.toList());
+        return freeSlots(schedule, bookedMinutes);
+    }
+
+    /**
+     * Keeps the template slots whose start minute is not booked
+     */
+    private List<TimeSlot> freeSlots(AvailabilitySchedule schedule, BitSet bookedMinutes) {
+        List<TimeSlot> availableSlots = new ArrayList<>(schedule.size());
+        for (int i = 0; i < schedule.size(); i++) {
+            TimeSlot slot = schedule.slotAt(i);
+            if (!bookedMinutes.get(slot.getStartMinute())) {
+                availableSlots.add(slot);
+            }
+        }
+        return availableSlots;
+    }
+
+    /**
+     * Fetches the available slots of several doctors over a date range.
+     * Doctors come from the in-memory directory and all booked slots are read with one range query.
+     */
+    public ResponseEntity<Map<String, Object>> getAvailabilityMatrix(
+            List<Long> doctorIds, String specialty, LocalDate from, LocalDate to, AuthenticatedPrincipal principal) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_RANGE_DAYS) {
+            response.put("message", "Date range must span 1 to " + MAX_AVAILABILITY_RANGE_DAYS + " days");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        List<Doctor> doctors;
+        if (doctorIds != null && !doctorIds.isEmpty()) {
+            doctors = new ArrayList<>();
+            for (Long doctorId : new LinkedHashSet<>(doctorIds)) {
+                doctorDirectory.findById(doctorId).ifPresent(doctors::add);
+            }
+        } else if (specialty != null && !specialty.isEmpty()) {
+            doctors = doctorDirectory.search(null, specialty, null);
+        } else {
+            response.put("message", "Either doctor IDs or a specialty is required");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        if (doctors.size() > MAX_AVAILABILITY_DOCTORS) {
+            response.put("message", "At most " + MAX_AVAILABILITY_DOCTORS + " doctors can be requested at once");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        try {
+            // Group booked start minutes by doctor and day
+            Map<Long, Map<LocalDate, BitSet>> booked = new HashMap<>();
+            if (!doctors.isEmpty()) {
+                List<Long> ids = doctors.stream().map(Doctor::getId).toList();
+                List<BookedSlot> bookedSlots = appointmentRepository
+                        .findBookedSlots(ids, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+                for (BookedSlot bookedSlot : bookedSlots) {
+                    LocalDateTime time = bookedSlot.getAppointmentTime();
+                    booked.computeIfAbsent(bookedSlot.getDoctorId(), id -> new HashMap<>())
+                            .computeIfAbsent(time.toLocalDate(), date -> new BitSet(24 * 60))
+                            .set(TimeSlot.minuteOfDay(time.toLocalTime()));
+                }
+            }
+
+            List<Map<String, Object>> matrix = new ArrayList<>(doctors.size());
+            for (Doctor doctor : doctors) {
+                AvailabilitySchedule schedule = doctor.getSchedule();
+                Map<LocalDate, BitSet> bookedByDay = booked.getOrDefault(doctor.getId(), Collections.emptyMap());
+
+                Map<String, List<String>> days = new LinkedHashMap<>();
+                for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                    List<TimeSlot> free = freeSlots(schedule, bookedByDay.getOrDefault(date, new BitSet()));
+                    days.put(date.toString(), withoutHeldSlots(doctor.getId(), date, free, viewerId(principal)));
+                }
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("doctorId", doctor.getId());
+                row.put("name", doctor.getName());
+                row.put("specialty", doctor.getSpecialty());
+                row.put("availableSlots", days);
+                matrix.add(row);
+            }
+
+            response.put("doctors", matrix);
+            response.put("count", matrix.size());
+            response.put("from", from.toString());
+            response.put("to", to.toString());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("message", "Error retrieving availability: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Finds the doctors (optionally of one specialty) with a free slot starting at the given date and time
+     */
+    public ResponseEntity<Map<String, Object>> getFreeDoctors(
+            LocalDate date, LocalTime time, String specialty, AuthenticatedPrincipal principal) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<Doctor> doctors;
+            LocalDateTime start = date.atTime(time);
+            if (start.isBefore(LocalDateTime.now()) || !slotScheduler.isWithinHorizon(start)) {
+                doctors = Collections.emptyList(); // No slot there can be booked
+            } else {
+                int minute = TimeSlot.minuteOfDay(time);
+                Long patientId = viewerId(principal);
+                doctors = doctorDirectory.findWithSlotStartingAt(minute, specialty,
+                        slotBookingIndex.bookedAt(date, minute)).stream()
+                        .filter(doctor -> !slotHoldRegistry.isHeldByOther(doctor.getId(), start, patientId))
+                        .toList();
+            }
+
+            response.put("doctors", doctors);
+            response.put("count", doctors.size());
+            response.put("date", date.toString());
+            response.put("time", time.toString());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("message", "Error retrieving free doctors: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Finds the earliest free slots across all doctors of a specialty within the next few days
+     * @param specialty the specialty (case-insensitive)
+     * @param days number of days to look ahead, starting today
+     * @param limit maximum number of slots to return
+     */
+    public ResponseEntity<Map<String, Object>> getNextAvailable(
+            String specialty, int days, int limit, AuthenticatedPrincipal principal) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (days < 1 || days > MAX_AVAILABILITY_RANGE_DAYS) {
+            response.put("message", "Days must be between 1 and " + MAX_AVAILABILITY_RANGE_DAYS);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        int maxResults = Math.max(1, Math.min(limit, MAX_NEXT_AVAILABLE_RESULTS));
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // Days beyond the slot horizon cannot be booked yet
+            LocalDate endDate = now.toLocalDate().plusDays(days);
+            if (endDate.isAfter(slotScheduler.getHorizonEnd())) {
+                endDate = slotScheduler.getHorizonEnd();
+            }
+
+            // Merge the doctors' lazily generated free slots, earliest first; stop after maxResults
+            PriorityQueue<FreeSlotIterator> queue = new PriorityQueue<>(
+                    Comparator.comparing(FreeSlotIterator::current)
+                            .thenComparing(iterator -> iterator.getDoctor().getId()));
+            for (Doctor doctor : doctorDirectory.search(null, specialty, null)) {
+                FreeSlotIterator iterator = new FreeSlotIterator(
+                        doctor, slotBookingIndex, slotHoldRegistry, viewerId(principal), now, endDate);
+                if (iterator.hasCurrent()) {
+                    queue.add(iterator);
+                }
+            }
+
+            List<Map<String, Object>> slots = new ArrayList<>(maxResults);
+            while (slots.size() < maxResults && !queue.isEmpty()) {
+                FreeSlotIterator earliest = queue.poll();
+                Doctor doctor = earliest.getDoctor();
+
+                Map<String, Object> slot = new LinkedHashMap<>();
+                slot.put("doctorId", doctor.getId());
+                slot.put("name", doctor.getName());
+                slot.put("date", earliest.current().toLocalDate().toString());
+                slot.put("slot", earliest.currentSlot().toString());
+                slots.add(slot);
+
+                earliest.advance();
+                if (earliest.hasCurrent()) {
+                    queue.add(earliest);
+                }
+            }
+
+            response.put("slots", slots);
+            response.put("count", slots.size());
+            response.put("specialty", specialty);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("message", "Error retrieving next available slots: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
     }
 
     /**
@@ -71,7 +326,10 @@ public class DoctorService {
                 return -1; // Doctor already exists
             }
 
-            doctorRepository.save(doctor);
+            Doctor savedDoctor = doctorRepository.save(doctor);
+            doctorDirectory.upsert(savedDoctor);
+            doctorSuggestIndex.upsert(savedDoctor.getId(), savedDoctor.getName(), savedDoctor.getSpecialty());
+            slotScheduler.generate(savedDoctor);
             return 1; // Success
         } catch (Exception e) {
             e.printStackTrace();
@@ -90,7 +348,13 @@ public class DoctorService {
                 return -1; // Doctor not found
             }
 
-            doctorRepository.save(doctor);
+            Doctor savedDoctor = doctorRepository.save(doctor);
+            doctorDirectory.upsert(savedDoctor);
+            doctorSuggestIndex.upsert(savedDoctor.getId(), savedDoctor.getName(), savedDoctor.getSpecialty());
+            availabilityCache.invalidateDoctor(savedDoctor.getId());
+            // Gate booking before the new slots become claimable
+            waitingRoom.openReleaseWindow(savedDoctor.getId());
+            slotScheduler.regenerate(savedDoctor);
             return 1; // Success
         } catch (Exception e) {
             e.printStackTrace();
@@ -99,10 +363,30 @@ public class DoctorService {
     }
 
     /**
-     * Retrieves a list of all doctors
+     * Retrieves one page of the doctor directory, ordered by ID
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param size requested page size, capped at MAX_PAGE_SIZE
      */
-    public List<Doctor> getDoctors() {
-        return doctorRepository.findAll();
+    public Map<String, Object> getDoctors(Long cursor, int size) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        // Served from the directory snapshot; one extra doctor tells whether another page follows
+        List<Doctor> doctors = doctorDirectory.findAfter(cursor != null ? cursor : 0L, pageSize + 1);
+        boolean hasMore = doctors.size() > pageSize;
+        List<DoctorSummary> page = new ArrayList<>(Math.min(doctors.size(), pageSize));
+        for (Doctor doctor : doctors.subList(0, Math.min(doctors.size(), pageSize))) {
+            DoctorSummary summary = new DoctorSummary(doctor.getId(), doctor.getName(), doctor.getSpecialty(),
+                    doctor.getEmail(), doctor.getPhone());
+            summary.getAvailableTimes().addAll(doctor.getAvailableTimes());
+            Collections.sort(summary.getAvailableTimes());
+            page.add(summary);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("doctors", page);
+        response.put("count", page.size());
+        response.put("nextCursor", hasMore ? page.get(page.size() - 1).getId() : null);
+        return response;
     }
 
     /**
@@ -116,11 +400,16 @@ public class DoctorService {
                 return -1; // Doctor not found
             }
 
-            // Delete all associated appointments
+            // Delete all associated appointments and bookable slots
             appointmentRepository.deleteAllByDoctorId(id);
+            slotScheduler.removeDoctor(id);
 
-            // Delete the doctor
+            // Delete the doctor and invalidate any tokens issued to them
             doctorRepository.deleteById(id);
+            doctorDirectory.remove(id);
+            doctorSuggestIndex.remove(id);
+            availabilityCache.invalidateDoctor(id);
+            tokenService.revokeTokens("doctor", id);
             return 1; // Success
         } catch (Exception e) {
             e.printStackTrace();
@@ -170,7 +459,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Doctor> doctors = doctorRepository.findByNameLike(name);
+            List<Doctor> doctors = doctorDirectory.search(name, null, null);
             response.put("doctors", doctors);
             response.put("count", doctors.size());
             response.put("searchTerm", name);
@@ -189,12 +478,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // First filter by name and specialty
-            List<Doctor> doctors = doctorRepository
-                    .findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
-
-            // Then filter by time
-            List<Doctor> filteredDoctors = filterDoctorByTime(doctors, amOrPm);
+            List<Doctor> filteredDoctors = doctorDirectory.search(name, specialty, amOrPm);
 
             response.put("doctors", filteredDoctors);
             response.put("count", filteredDoctors.size());
@@ -218,11 +502,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // First filter by name
-            List<Doctor> doctors = doctorRepository.findByNameLike(name);
-
-            // Then filter by time
-            List<Doctor> filteredDoctors = filterDoctorByTime(doctors, amOrPm);
+            List<Doctor> filteredDoctors = doctorDirectory.search(name, null, amOrPm);
 
             response.put("doctors", filteredDoctors);
             response.put("count", filteredDoctors.size());
@@ -245,8 +525,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Doctor> doctors = doctorRepository
-                    .findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
+            List<Doctor> doctors = doctorDirectory.search(name, specialty, null);
 
             response.put("doctors", doctors);
             response.put("count", doctors.size());
@@ -269,11 +548,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // First filter by specialty
-            List<Doctor> doctors = doctorRepository.findBySpecialtyIgnoreCase(specialty);
-
-            // Then filter by time
-            List<Doctor> filteredDoctors = filterDoctorByTime(doctors, amOrPm);
+            List<Doctor> filteredDoctors = doctorDirectory.search(null, specialty, amOrPm);
 
             response.put("doctors", filteredDoctors);
             response.put("count", filteredDoctors.size());
@@ -296,7 +571,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Doctor> doctors = doctorRepository.findBySpecialtyIgnoreCase(specialty);
+            List<Doctor> doctors = doctorDirectory.search(null, specialty, null);
 
             response.put("doctors", doctors);
             response.put("count", doctors.size());
@@ -318,8 +593,7 @@ public class DoctorService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Doctor> allDoctors = doctorRepository.findAll();
-            List<Doctor> filteredDoctors = filterDoctorByTime(allDoctors, amOrPm);
+            List<Doctor> filteredDoctors = doctorDirectory.search(null, null, amOrPm);
 
             response.put("doctors", filteredDoctors);
             response.put("count", filteredDoctors.size());
@@ -333,31 +607,4 @@ public class DoctorService {
 
         return response;
     }
-
-    /**
-     * Private method to filter a list of doctors by their available times (AM/PM)
-     */
-    private List<Doctor> filterDoctorByTime(List<Doctor> doctors, String amOrPm) {
-        return doctors.stream()
-                .filter(doctor -> {
-                    List<String> availableTimes = doctor.getAvailableTimes();
-                    if (availableTimes == null || availableTimes.isEmpty()) {
-                        return false;
-                    }
-
-                    // Check if any available time slot matches AM/PM
-                    return availableTimes.stream().anyMatch(timeSlot -> {
-                        String startTime = timeSlot.split(" - ")[0];
-                        LocalTime time = LocalTime.parse(startTime);
-
-                        if ("AM".equalsIgnoreCase(amOrPm)) {
-                            return time.isBefore(LocalTime.NOON);
-                        } else if ("PM".equalsIgnoreCase(amOrPm)) {
-                            return time.isAfter(LocalTime.NOON.minusMinutes(1));
-                        }
-                        return false;
-                    });
-                })
-                .collect(Collectors.toList());
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,403 @@
+package com.project.back_end.services;
+
+import com.project.back_end.dto.DoctorBookingCount;
+import com.project.back_end.dto.DoctorSummary;
+import com.project.back_end.repositories.AppointmentRepository;
+import com.project.back_end.repositories.DoctorRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocomplete over doctor names and specialties, backed by a compressed prefix trie (radix tree).
+ * Every word of a doctor's name, the full name, and each specialty are keys. Suggestions are ranked by
+ * booking popularity: the number of appointments of a doctor, or of all doctors of a specialty.
+ * Each node carries an upper bound of the popularity below it, so a lookup visits subtrees best-first and
+ * stops as soon as no unvisited subtree can outrank the suggestions found. Only ranks are returned; the
+ * booking counts stay internal. The trie is updated incrementally on doctor changes; popularity counters
+ * and bounds on bookings and cancellations.
+ */
+@Component
+public class DoctorSuggestIndex {
+
+    public static final String TYPE_DOCTOR = "doctor";
+    public static final String TYPE_SPECIALTY = "specialty";
+
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<Long, DoctorKey> doctors = new HashMap<>();
+    private final Map<String, Set<Long>> doctorsBySpecialty = new HashMap<>();
+    private final Map<String, String> specialtyLabels = new HashMap<>();
+    private final Map<Long, AtomicLong> bookings = new ConcurrentHashMap<>();
+
+    public DoctorSuggestIndex(DoctorRepository doctorRepository, AppointmentRepository appointmentRepository) {
+        this.doctorRepository = doctorRepository;
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    /**
+     * Loads all doctors and their booking counts; runs once at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        for (DoctorBookingCount count : appointmentRepository.countBookingsByDoctor()) {
+            bookings(count.getDoctorId()).set(count.getBookings());
+        }
+        for (DoctorSummary doctor : doctorRepository.findAllSummaries()) {
+            upsert(doctor.getId(), doctor.getName(), doctor.getSpecialty());
+        }
+    }
+
+    /**
+     * Adds a doctor or replaces their name and specialty
+     */
+    public void upsert(Long id, String name, String specialty) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            DoctorKey key = new DoctorKey(name != null ? name : "", specialty);
+            doctors.put(id, key);
+
+            Target target = Target.doctor(id);
+            for (String term : nameTerms(key.name)) {
+                insert(term, target);
+            }
+
+            if (specialty != null && !specialty.isBlank()) {
+                String normalized = specialty.trim().toLowerCase();
+                Set<Long> members = doctorsBySpecialty.computeIfAbsent(normalized, k -> new HashSet<>());
+                if (members.isEmpty()) {
+                    specialtyLabels.put(normalized, specialty.trim());
+                    for (String term : nameTerms(specialty)) {
+                        insert(term, Target.specialty(normalized));
+                    }
+                }
+                members.add(id);
+            }
+            raiseBounds(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted doctor
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        bookings.remove(id);
+    }
+
+    public void recordBooking(Long doctorId) {
+        bookings(doctorId).incrementAndGet();
+        lock.readLock().lock();
+        try {
+            raiseBounds(doctorId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void recordCancellation(Long doctorId) {
+        bookings(doctorId).updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    /**
+     * Find the most popular doctors and specialties having a word (or full name) starting with the prefix
+     * @param prefix the typed prefix, case-insensitive
+     * @param limit maximum number of suggestions
+     * @return up to limit suggestions, most popular first, ranked from 1
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = prefix == null ? "" : prefix.trim().toLowerCase();
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Comparator<Candidate> ranking = Comparator.comparingLong(Candidate::popularity)
+                .thenComparing(Candidate::label, Comparator.reverseOrder());
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, ranking);
+
+        lock.readLock().lock();
+        try {
+            Node start = findPrefix(normalized);
+            if (start == null) {
+                return Collections.emptyList();
+            }
+
+            // Best-first by subtree bound; bounds are read once when a node is queued, as bookings may raise them meanwhile
+            Set<Target> seen = new HashSet<>();
+            PriorityQueue<Pending> pending = new PriorityQueue<>(Comparator.comparingLong(Pending::bound).reversed());
+            pending.offer(new Pending(start, start.bound.get()));
+            while (!pending.isEmpty()) {
+                Pending next = pending.poll();
+                if (best.size() == limit && next.bound <= best.peek().popularity) {
+                    break; // Nothing left can outrank the current suggestions
+                }
+                for (Target target : next.node.targets) {
+                    if (seen.add(target)) {
+                        best.offer(toCandidate(target));
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+                for (Node child : next.node.children.values()) {
+                    pending.offer(new Pending(child, child.bound.get()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(ranking.reversed());
+        List<Suggestion> result = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            result.add(new Suggestion(candidate.type, candidate.id, candidate.label, result.size() + 1));
+        }
+        return result;
+    }
+
+    private Candidate toCandidate(Target target) {
+        if (target.doctorId != null) {
+            return new Candidate(TYPE_DOCTOR, target.doctorId, doctors.get(target.doctorId).name,
+                    bookings(target.doctorId).get());
+        }
+        return new Candidate(TYPE_SPECIALTY, null, specialtyLabels.get(target.specialty), specialtyPopularity(target.specialty));
+    }
+
+    private long specialtyPopularity(String normalized) {
+        long popularity = 0;
+        for (Long doctorId : doctorsBySpecialty.getOrDefault(normalized, Collections.emptySet())) {
+            popularity += bookings(doctorId).get();
+        }
+        return popularity;
+    }
+
+    /**
+     * Lifts the bounds on the paths of a doctor's terms and specialty terms to their current popularity.
+     * Bounds only grow, so after cancellations they may overestimate, which costs extra visits but never a wrong result.
+     * Callers hold the read or the write lock; the bounds themselves are atomic.
+     */
+    private void raiseBounds(Long doctorId) {
+        DoctorKey key = doctors.get(doctorId);
+        if (key == null) {
+            return;
+        }
+        long popularity = bookings(doctorId).get();
+        for (String term : nameTerms(key.name)) {
+            raise(term, popularity);
+        }
+        if (key.specialty != null && !key.specialty.isBlank()) {
+            long specialtyPopularity = specialtyPopularity(key.specialty.trim().toLowerCase());
+            for (String term : nameTerms(key.specialty)) {
+                raise(term, specialtyPopularity);
+            }
+        }
+    }
+
+    private void removeLocked(Long id) {
+        DoctorKey previous = doctors.remove(id);
+        if (previous == null) {
+            return;
+        }
+        Target target = Target.doctor(id);
+        for (String term : nameTerms(previous.name)) {
+            delete(term, target);
+        }
+
+        if (previous.specialty != null && !previous.specialty.isBlank()) {
+            String normalized = previous.specialty.trim().toLowerCase();
+            Set<Long> members = doctorsBySpecialty.get(normalized);
+            if (members != null && members.remove(id) && members.isEmpty()) {
+                doctorsBySpecialty.remove(normalized);
+                specialtyLabels.remove(normalized);
+                for (String term : nameTerms(previous.specialty)) {
+                    delete(term, Target.specialty(normalized));
+                }
+            }
+        }
+    }
+
+    private AtomicLong bookings(Long doctorId) {
+        return bookings.computeIfAbsent(doctorId, id -> new AtomicLong());
+    }
+
+    /**
+     * @return the full lower-cased text and each of its words
+     */
+    private static Set<String> nameTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        String normalized = text.trim().toLowerCase();
+        if (!normalized.isEmpty()) {
+            terms.add(normalized);
+            for (String word : normalized.split("\\s+")) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    // Radix tree operations; callers hold the write lock (insert, delete) or the read lock (findPrefix)
+
+    private void insert(String key, Target target) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(key.substring(i));
+                leaf.targets.add(target);
+                node.children.put(key.charAt(i), leaf);
+                return;
+            }
+            int common = commonPrefixLength(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the key diverges
+                Node middle = new Node(child.label.substring(0, common));
+                middle.bound.set(child.bound.get());
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                node.children.put(middle.label.charAt(0), middle);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        node.targets.add(target);
+    }
+
+    private void delete(String key, Target target) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return;
+            }
+            node = child;
+            path.add(node);
+            i += child.label.length();
+        }
+        node.targets.remove(target);
+
+        // Drop empty leaves and merge single-child pass-through nodes back into one edge
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node current = path.get(depth);
+            Node parent = path.get(depth - 1);
+            if (!current.targets.isEmpty()) {
+                break;
+            }
+            if (current.children.isEmpty()) {
+                parent.children.remove(current.label.charAt(0));
+            } else if (current.children.size() == 1) {
+                Node only = current.children.values().iterator().next();
+                only.label = current.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void raise(String key, long popularity) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return;
+            }
+            child.bound.accumulateAndGet(popularity, Math::max);
+            node = child;
+            i += child.label.length();
+        }
+    }
+
+    private Node findPrefix(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefixLength(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int length = 0;
+        while (length < max && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static final class Node {
+
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Set<Target> targets = new HashSet<>();
+        /** At least the popularity of every target in this subtree */
+        private final AtomicLong bound = new AtomicLong();
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Target(Long doctorId, String specialty) {
+
+        static Target doctor(Long id) {
+            return new Target(id, null);
+        }
+
+        static Target specialty(String normalized) {
+            return new Target(null, normalized);
+        }
+    }
+
+    private record DoctorKey(String name, String specialty) {
+    }
+
+    private record Pending(Node node, long bound) {
+    }
+
+    private record Candidate(String type, Long id, String label, long popularity) {
+    }
+
+    /**
+     * One autocomplete entry; id is null for specialties and rank 1 is the most booked
+     */
+    public record Suggestion(String type, Long id, String label, int rank) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.AvailabilitySchedule;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.TimeSlot;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily walks one doctor's free slots in time order, from now up to (excluding) an end date.
+ * Slots that are booked, or held by a patient other than the viewer, are skipped.
+ * A slot is produced only when asked for, so a merge across doctors that stops early never looks at later days.
+ */
+final class FreeSlotIterator {
+
+    private final Doctor doctor;
+    private final AvailabilitySchedule schedule;
+    private final SlotBookingIndex slotBookingIndex;
+    private final SlotHoldRegistry slotHoldRegistry;
+    private final Long viewerId;
+    private final LocalDateTime notBefore;
+    private final LocalDate endDate;
+
+    private LocalDate date;
+    private int index = -1;
+    private LocalDateTime current;
+
+    FreeSlotIterator(Doctor doctor, SlotBookingIndex slotBookingIndex, SlotHoldRegistry slotHoldRegistry,
+                     Long viewerId, LocalDateTime notBefore, LocalDate endDate) {
+        this.doctor = doctor;
+        this.schedule = doctor.getSchedule();
+        this.slotBookingIndex = slotBookingIndex;
+        this.slotHoldRegistry = slotHoldRegistry;
+        this.viewerId = viewerId;
+        this.notBefore = notBefore;
+        this.endDate = endDate;
+        this.date = notBefore.toLocalDate();
+        advance();
+    }
+
+    Doctor getDoctor() {
+        return doctor;
+    }
+
+    boolean hasCurrent() {
+        return current != null;
+    }
+
+    /**
+     * @return start of the current free slot
+     */
+    LocalDateTime current() {
+        if (current == null) {
+            throw new NoSuchElementException();
+        }
+        return current;
+    }
+
+    /**
+     * @return the current free slot as a time-of-day slot
+     */
+    TimeSlot currentSlot() {
+        return schedule.slotAt(index);
+    }
+
+    /**
+     * Moves to the next free slot, leaving no current slot when the range is exhausted
+     */
+    void advance() {
+        current = null;
+        if (schedule.isEmpty()) {
+            return;
+        }
+        Long doctorId = doctor.getId();
+        while (date.isBefore(endDate)) {
+            while (++index < schedule.size()) {
+                int minute = schedule.slotAt(index).getStartMinute();
+                LocalDateTime start = date.atStartOfDay().plusMinutes(minute);
+                if (!start.isBefore(notBefore)
+                        && !slotBookingIndex.isBooked(date, minute, doctorId)
+                        && !slotHoldRegistry.isHeldByOther(doctorId, start, viewerId)) {
+                    current = start;
+                    return;
+                }
+            }
+            date = date.plusDays(1);
+            index = -1;
+        }
+    }
+}
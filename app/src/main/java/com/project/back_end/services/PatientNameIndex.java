@@ -0,0 +1,61 @@
+package com.project.back_end.services;
+
+import com.project.back_end.dto.PatientName;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repositories.PatientRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Trigram index over patient names, so a doctor's patient-name search can look appointments up
+ * by patient ID instead of scanning with LIKE '%name%'.
+ */
+@Component
+public class PatientNameIndex {
+
+    private final PatientRepository patientRepository;
+
+    private volatile TrigramIndex index = new TrigramIndex();
+
+    public PatientNameIndex(PatientRepository patientRepository) {
+        this.patientRepository = patientRepository;
+    }
+
+    /**
+     * Rebuilds the index from the database; runs once at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        TrigramIndex rebuilt = new TrigramIndex();
+        for (PatientName patient : patientRepository.findAllNames()) {
+            rebuilt.put(patient.getId(), patient.getName());
+        }
+        index = rebuilt;
+    }
+
+    /**
+     * Adds a newly saved patient to the index
+     */
+    public synchronized void add(Patient patient) {
+        index.put(patient.getId(), patient.getName());
+    }
+
+    /**
+     * Find patients by partial name (case-insensitive)
+     * @param name partial name to search for
+     * @return IDs of the matching patients, in ascending order
+     */
+    public List<Long> search(String name) {
+        BitSet matches = index.search(name);
+        List<Long> ids = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            ids.add((long) id);
+        }
+        return ids;
+    }
+}
@@ -1,18 +1,18 @@
 package com.project.back_end.services;
 
 import com.project.back_end.models.Patient;
-import com.project.back_end.models.Appointment;
 import com.project.back_end.dto.AppointmentDTO;
 import com.project.back_end.repositories.PatientRepository;
 import com.project.back_end.repositories.AppointmentRepository;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class PatientService {
@@ -24,14 +24,21 @@ public class PatientService {
     private AppointmentRepository appointmentRepository;
 
     @Autowired
-    private TokenService tokenService;
+    private PatientNameIndex patientNameIndex;
+
+    /** Page size used when the client does not ask for one */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** Largest page a client may request */
+    public static final int MAX_PAGE_SIZE = 100;
 
     /**
      * Saves a new patient to the database
      */
     public int createPatient(Patient patient) {
         try {
-            patientRepository.save(patient);
+            Patient saved = patientRepository.save(patient);
+            patientNameIndex.add(saved);
             return 1; // Success
         } catch (Exception e) {
             e.printStackTrace();
@@ -40,48 +47,41 @@ public class PatientService {
     }
 
     /**
-     * Retrieves a list of appointments for a specific patient
+     * Retrieves one page of appointments for a specific patient, ordered by appointment time
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param size requested page size, capped at MAX_PAGE_SIZE
      */
-    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, String token) {
+    public ResponseEntity<Map<String, Object>> getPatientAppointment(
+            Long id, AuthenticatedPrincipal principal, String cursor, int size) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // Extract email from token
-            String emailFromToken = tokenService.extractEmail(token);
-            if (emailFromToken == null) {
+            if (principal == null) {
                 response.put("message", "Invalid token");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            // Get patient by ID
-            Optional<Patient> patientOpt = patientRepository.findById(id);
-            if (patientOpt.isEmpty()) {
-                response.put("message", "Patient not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-
-            Patient patient = patientOpt.get();
-
-            // Verify that token email matches patient email
-            if (!patient.getEmail().equals(emailFromToken)) {
+            // Verify that the token was issued to this patient
+            if (!principal.hasRole("patient") || !principal.getId().equals(id)) {
                 response.put("message", "Unauthorized access");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            // Get appointments for the patient
-            List<Appointment> appointments = appointmentRepository.findByPatientId(id);
+            AppointmentCursor after = AppointmentCursor.decode(cursor);
+            int pageSize = pageSize(size);
 
-            // Convert to DTOs
-            List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            // Get one page of appointments for the patient, projected into DTOs by the query
+            List<AppointmentDTO> rows = appointmentRepository.findByPatientId(
+                    id, after.getAppointmentTime(), after.getId(), PageRequest.of(0, pageSize + 1));
 
-            response.put("appointments", appointmentDTOs);
-            response.put("count", appointmentDTOs.size());
+            putPage(response, rows, pageSize);
             response.put("patientId", id);
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("message", "Error retrieving appointments: " + e.getMessage());
@@ -90,36 +90,41 @@ public class PatientService {
     }
 
     /**
-     * Filters appointments by condition (past or future) for a specific patient
+     * Filters one page of appointments by condition (past or future) for a specific patient
      */
-    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id) {
+    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id, String cursor, int size) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            int status;
-            if ("past".equalsIgnoreCase(condition)) {
-                status = 1; // Completed appointments
-            } else if ("future".equalsIgnoreCase(condition)) {
-                status = 0; // Scheduled appointments
-            } else {
+            Boolean past = isPast(condition);
+            if (past == null) {
                 response.put("message", "Invalid condition. Use 'past' or 'future'");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            List<Appointment> appointments = appointmentRepository
-                    .findByPatient_IdAndStatusOrderByAppointmentTimeAsc(id, status);
+            AppointmentCursor after = AppointmentCursor.decode(cursor);
+            int pageSize = pageSize(size);
+            LocalDateTime cutoff = AppointmentStatusRollover.completedBefore(LocalDateTime.now());
 
-            List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<AppointmentDTO> rows;
+            if (past) {
+                rows = appointmentRepository.findPastByPatientId(
+                        id, cutoff, after.getAppointmentTime(), after.getId(), PageRequest.of(0, pageSize + 1));
+            } else {
+                after = after.notBefore(cutoff);
+                rows = appointmentRepository.findByPatientId(
+                        id, after.getAppointmentTime(), after.getId(), PageRequest.of(0, pageSize + 1));
+            }
 
-            response.put("appointments", appointmentDTOs);
-            response.put("count", appointmentDTOs.size());
+            putPage(response, rows, pageSize);
             response.put("condition", condition);
             response.put("patientId", id);
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("message", "Error filtering appointments: " + e.getMessage());
@@ -128,26 +133,27 @@ public class PatientService {
     }
 
     /**
-     * Filters the patient's appointments by doctor's name
+     * Filters one page of the patient's appointments by doctor's name
      */
-    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId) {
+    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId, String cursor, int size) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Appointment> appointments = appointmentRepository
-                    .filterByDoctorNameAndPatientId(name, patientId);
+            AppointmentCursor after = AppointmentCursor.decode(cursor);
+            int pageSize = pageSize(size);
 
-            List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<AppointmentDTO> rows = appointmentRepository.filterByDoctorNameAndPatientId(
+                    name, patientId, after.getAppointmentTime(), after.getId(), PageRequest.of(0, pageSize + 1));
 
-            response.put("appointments", appointmentDTOs);
-            response.put("count", appointmentDTOs.size());
+            putPage(response, rows, pageSize);
             response.put("doctorName", name);
             response.put("patientId", patientId);
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("message", "Error filtering appointments: " + e.getMessage());
@@ -156,38 +162,43 @@ public class PatientService {
     }
 
     /**
-     * Filters the patient's appointments by doctor's name and appointment condition
+     * Filters one page of the patient's appointments by doctor's name and appointment condition
      */
     public ResponseEntity<Map<String, Object>> filterByDoctorAndCondition(
-            String condition, String name, long patientId) {
+            String condition, String name, long patientId, String cursor, int size) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            int status;
-            if ("past".equalsIgnoreCase(condition)) {
-                status = 1; // Completed
-            } else if ("future".equalsIgnoreCase(condition)) {
-                status = 0; // Scheduled
-            } else {
+            Boolean past = isPast(condition);
+            if (past == null) {
                 response.put("message", "Invalid condition. Use 'past' or 'future'");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            List<Appointment> appointments = appointmentRepository
-                    .filterByDoctorNameAndPatientIdAndStatus(name, patientId, status);
+            AppointmentCursor after = AppointmentCursor.decode(cursor);
+            int pageSize = pageSize(size);
+            LocalDateTime cutoff = AppointmentStatusRollover.completedBefore(LocalDateTime.now());
 
-            List<AppointmentDTO> appointmentDTOs = appointments.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<AppointmentDTO> rows;
+            if (past) {
+                rows = appointmentRepository.filterPastByDoctorNameAndPatientId(
+                        name, patientId, cutoff, after.getAppointmentTime(), after.getId(), PageRequest.of(0, pageSize + 1));
+            } else {
+                after = after.notBefore(cutoff);
+                rows = appointmentRepository.filterByDoctorNameAndPatientId(
+                        name, patientId, after.getAppointmentTime(), after.getId(), PageRequest.of(0, pageSize + 1));
+            }
 
-            response.put("appointments", appointmentDTOs);
-            response.put("count", appointmentDTOs.size());
+            putPage(response, rows, pageSize);
             response.put("doctorName", name);
             response.put("condition", condition);
             response.put("patientId", patientId);
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("message", "Error filtering appointments: " + e.getMessage());
@@ -196,24 +207,25 @@ public class PatientService {
     }
 
     /**
-     * Fetches the patient's details based on the provided JWT token
+     * Fetches the details of the patient the request's token was issued to
      */
-    public ResponseEntity<Map<String, Object>> getPatientDetails(String token) {
+    public ResponseEntity<Map<String, Object>> getPatientDetails(AuthenticatedPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            String email = tokenService.extractEmail(token);
-            if (email == null) {
+            if (principal == null || !principal.hasRole("patient")) {
                 response.put("message", "Invalid token");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            Patient patient = patientRepository.findByEmail(email);
-            if (patient == null) {
+            Optional<Patient> patientOpt = patientRepository.findById(principal.getId());
+            if (patientOpt.isEmpty()) {
                 response.put("message", "Patient not found");
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
 
+            Patient patient = patientOpt.get();
+
             // Remove sensitive data
             Map<String, Object> patientData = new HashMap<>();
             patientData.put("id", patient.getId());
@@ -233,20 +245,32 @@ public class PatientService {
     }
 
     /**
-     * Helper method to convert Appointment to AppointmentDTO
+     * Past appointments are those the status rollover completes, i.e. ended before now;
+     * future ones are still under way or start later, whatever their status
+     * @return whether the condition is "past", or null if it is neither "past" nor "future"
      */
-    private AppointmentDTO convertToDTO(Appointment appointment) {
-        return new AppointmentDTO(
-                appointment.getId(),
-                appointment.getDoctor().getId(),
-                appointment.getDoctor().getName(),
-                appointment.getPatient().getId(),
-                appointment.getPatient().getName(),
-                appointment.getPatient().getEmail(),
-                appointment.getPatient().getPhone(),
-                appointment.getPatient().getAddress(),
-                appointment.getAppointmentTime(),
-                appointment.getStatus()
-        );
+    private static Boolean isPast(String condition) {
+        if ("past".equalsIgnoreCase(condition)) {
+            return true;
+        } else if ("future".equalsIgnoreCase(condition)) {
+            return false;
+        }
+        return null;
+    }
+
+    private static int pageSize(int size) {
+        return size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Puts a page into the response; the rows were fetched with one extra row to detect a next page
+     */
+    private static void putPage(Map<String, Object> response, List<AppointmentDTO> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<AppointmentDTO> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        response.put("appointments", page);
+        response.put("count", page.size());
+        response.put("nextCursor", hasMore ? AppointmentCursor.after(page.get(page.size() - 1)).encode() : null);
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,37 @@
 package com.project.back_end.services;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
 import com.project.back_end.models.Prescription;
 import com.project.back_end.repositories.PrescriptionRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class PrescriptionService {
@@ -17,6 +39,41 @@ public class PrescriptionService {
     @Autowired
     private PrescriptionRepository prescriptionRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    /** Documents per unordered bulk write during bulk ingestion */
+    @Value("${prescriptions.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    /** Upper bound on the appointment IDs of one batch lookup, several day sheets' worth */
+    public static final int MAX_BATCH_APPOINTMENTS = 500;
+
+    /** Failures listed in a bulk ingestion response; further ones are only counted */
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    /**
+     * Ensures the unique index on appointmentId that lookups by appointment rely on; runs once at startup.
+     * Creating it fails while duplicate prescriptions of an appointment exist; lookups then still work, unindexed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        try {
+            mongoTemplate.indexOps(Prescription.class).ensureIndex(new Index()
+                    .on("appointmentId", Sort.Direction.ASC)
+                    .unique()
+                    .named("uk_prescription_appointment"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Saves a prescription to the database
      */
@@ -28,6 +85,9 @@ public class PrescriptionService {
             response.put("message", "Prescription saved");
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (DuplicateKeyException e) {
+            response.put("message", "A prescription already exists for this appointment");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("message", "Error saving prescription");
@@ -42,16 +102,15 @@ public class PrescriptionService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Prescription> prescriptions = prescriptionRepository.findByAppointmentId(appointmentId);
+            // At most one prescription per appointment, enforced by the unique index
+            Optional<Prescription> prescription = prescriptionRepository.findFirstByAppointmentId(appointmentId);
 
-            if (prescriptions.isEmpty()) {
+            if (prescription.isEmpty()) {
                 response.put("message", "No prescription found for this appointment");
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
 
-            // Assuming one prescription per appointment, get the first one
-            Prescription prescription = prescriptions.get(0);
-            response.put("prescription", prescription);
+            response.put("prescription", prescription.get());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
@@ -60,4 +119,161 @@ public class PrescriptionService {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the prescriptions of several appointments with a single query
+     * @param appointmentIds the IDs of the appointments
+     * @param flagsOnly whether to return only which appointments have a prescription
+     * @return prescriptions by appointment ID, or a has-prescription flag for every requested appointment
+     */
+    public ResponseEntity<Map<String, Object>> getPrescriptions(List<Long> appointmentIds, boolean flagsOnly) {
+        Map<String, Object> response = new HashMap<>();
+
+        Set<Long> ids = new LinkedHashSet<>(appointmentIds);
+        ids.remove(null);
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_APPOINTMENTS) {
+            response.put("message", "Provide between 1 and " + MAX_BATCH_APPOINTMENTS + " appointment IDs");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        try {
+            if (flagsOnly) {
+                Map<Long, Boolean> flags = new LinkedHashMap<>();
+                for (Long id : ids) {
+                    flags.put(id, false);
+                }
+                for (Prescription prescription : prescriptionRepository.findAppointmentIdsByAppointmentIdIn(ids)) {
+                    flags.put(prescription.getAppointmentId(), true);
+                }
+                response.put("hasPrescription", flags);
+            } else {
+                Map<Long, Prescription> prescriptions = new LinkedHashMap<>();
+                for (Prescription prescription : prescriptionRepository.findByAppointmentIdIn(ids)) {
+                    prescriptions.put(prescription.getAppointmentId(), prescription);
+                }
+                response.put("prescriptions", prescriptions);
+            }
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("message", "Error retrieving prescriptions: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Ingests prescriptions streamed as a JSON array or as newline-delimited JSON.
+     * Records are read one at a time and validated against the Prescription constraints; valid ones are written
+     * with unordered bulk inserts of bulkChunkSize documents, so one bad record never aborts the rest.
+     * @param body the request body
+     * @return counts of received, inserted and failed records, and the failures by record index
+     */
+    public ResponseEntity<Map<String, Object>> bulkSavePrescriptions(InputStream body) {
+        Map<String, Object> response = new HashMap<>();
+        BulkResult result = new BulkResult();
+        List<Prescription> chunk = new ArrayList<>(bulkChunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(bulkChunkSize);
+        int index = 0;
+
+        // A root-level array is unwrapped, so the same iterator reads both formats
+        try (MappingIterator<Prescription> records = objectMapper.readerFor(Prescription.class).readValues(body)) {
+            while (true) {
+                // The body is read as bytes, so the location carries a byte offset
+                long offset = records.getCurrentLocation().getByteOffset();
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    Prescription prescription = records.nextValue();
+                    List<String> errors = new ArrayList<>();
+                    if (prescription == null) {
+                        // A null element reads as a null record rather than a mapping error
+                        errors.add("Record is not a prescription object");
+                    } else {
+                        for (ConstraintViolation<Prescription> violation : validator.validate(prescription)) {
+                            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+                        }
+                    }
+                    if (errors.isEmpty()) {
+                        chunk.add(prescription);
+                        chunkIndexes.add(index);
+                        if (chunk.size() == bulkChunkSize) {
+                            writeChunk(chunk, chunkIndexes, result);
+                        }
+                    } else {
+                        result.fail(index, String.join("; ", errors));
+                    }
+                } catch (JsonParseException e) {
+                    // Malformed JSON: the rest of the stream cannot be read reliably
+                    result.fail(index, "Malformed JSON: " + e.getOriginalMessage());
+                    response.put("message", "Ingestion stopped at malformed JSON in record " + index);
+                    break;
+                } catch (JsonMappingException e) {
+                    // Well-formed record of the wrong shape; the iterator skips past it
+                    result.fail(index, "Invalid record: " + e.getOriginalMessage());
+                    if (records.getCurrentLocation().getByteOffset() == offset) {
+                        response.put("message", "Ingestion stopped at unreadable record " + index);
+                        break;
+                    }
+                }
+                index++;
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, chunkIndexes, result);
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("message", "Error ingesting prescriptions: " + e.getMessage());
+            response.put("inserted", result.inserted);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+
+        response.put("received", index);
+        response.put("inserted", result.inserted);
+        response.put("failed", result.failed);
+        response.put("failures", result.failures);
+        return ResponseEntity.status(response.containsKey("message") ? HttpStatus.BAD_REQUEST : HttpStatus.OK)
+                .body(response);
+    }
+
+    /**
+     * Writes a chunk with one unordered bulk insert; documents rejected by the server, e.g. a second prescription
+     * for an appointment, are reported by their record index while the others are still inserted
+     */
+    private void writeChunk(List<Prescription> chunk, List<Integer> chunkIndexes, BulkResult result) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Prescription.class);
+        operations.insert(chunk);
+        try {
+            result.inserted += operations.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            result.inserted += e.getResult().getInsertedCount();
+            for (BulkWriteError error : e.getErrors()) {
+                result.fail(chunkIndexes.get(error.getIndex()), error.getMessage());
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    /**
+     * Running totals of a bulk ingestion
+     */
+    private static final class BulkResult {
+
+        private int inserted;
+        private int failed;
+        private final List<Map<String, Object>> failures = new ArrayList<>();
+
+        private void fail(int index, String error) {
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                Map<String, Object> failure = new LinkedHashMap<>();
+                failure.put("index", index);
+                failure.put("error", error);
+                failures.add(failure);
+            }
+        }
+    }
+}
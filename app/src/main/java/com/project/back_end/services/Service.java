@@ -2,12 +2,15 @@ package com.project.back_end.services;
 
 import com.project.back_end.models.Admin;
 import com.project.back_end.models.Appointment;
+import com.project.back_end.models.AvailabilitySchedule;
 import com.project.back_end.models.Doctor;
 import com.project.back_end.models.Patient;
+import com.project.back_end.models.TimeSlot;
 import com.project.back_end.dto.Login;
 import com.project.back_end.repositories.AdminRepository;
 import com.project.back_end.repositories.DoctorRepository;
 import com.project.back_end.repositories.PatientRepository;
+import com.project.back_end.security.AuthenticatedPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -41,29 +44,39 @@ public class Service {
     @Autowired
     private final PatientService patientService;
 
+    @Autowired
+    private final DoctorDirectory doctorDirectory;
+
+    @Autowired
+    private final SlotScheduler slotScheduler;
+
     // 2. **Constructor Injection for Dependencies**
     // The constructor injects all required dependencies (TokenService, Repositories, and other Services). This approach promotes loose coupling, improves testability,
     // and ensures that all required dependencies are provided at object creation time.
     @Autowired
     public Service(TokenService tokenService, AdminRepository adminRepository,
                    DoctorRepository doctorRepository, PatientRepository patientRepository,
-                   DoctorService doctorService, PatientService patientService) {
+                   DoctorService doctorService, PatientService patientService,
+                   DoctorDirectory doctorDirectory, SlotScheduler slotScheduler) {
         this.tokenService = tokenService;
         this.adminRepository = adminRepository;
         this.doctorRepository = doctorRepository;
         this.patientRepository = patientRepository;
         this.doctorService = doctorService;
         this.patientService = patientService;
+        this.doctorDirectory = doctorDirectory;
+        this.slotScheduler = slotScheduler;
     }
 
     // 3. **validateToken Method**
-    // This method checks if the provided JWT token is valid for a specific user. It uses the TokenService to perform the validation.
-    // If the token is invalid or expired, it returns a 401 Unauthorized response with an appropriate error message. This ensures security by preventing
+    // This method checks that the principal resolved from the request's JWT token by the PrincipalArgumentResolver has the given role.
+    // A null principal means the token was missing, invalid or expired.
+    // In that case it returns a 401 Unauthorized response with an appropriate error message. This ensures security by preventing
     // unauthorized access to protected resources.
-    public ResponseEntity<Map<String, String>> validateToken(String token, String user) {
+    public ResponseEntity<Map<String, String>> validateToken(AuthenticatedPrincipal principal, String user) {
         Map<String, String> response = new HashMap<>();
 
-        if (!tokenService.validateToken(token, user)) {
+        if (principal == null || !principal.hasRole(user)) {
             response.put("message", "Invalid or expired token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
@@ -76,7 +89,7 @@ public class Service {
     // This method validates the login credentials for an admin user.
     // - It first searches the admin repository using the provided username.
     // - If an admin is found, it checks if the password matches.
-    // - If the password is correct, it generates and returns a JWT token (using the admin’s username) with a 200 OK status.
+    // - If the password is correct, it generates and returns a JWT token (using the admin’s username, role and id) with a 200 OK status.
     // - If the password is incorrect, it returns a 401 Unauthorized status with an error message.
     // - If no admin is found, it also returns a 401 Unauthorized.
     // - If any unexpected error occurs during the process, a 500 Internal Server Error response is returned.
@@ -97,7 +110,7 @@ public class Service {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            String token = tokenService.generateToken(admin.getUsername());
+            String token = tokenService.generateToken(admin.getUsername(), "admin", admin.getId());
             response.put("token", token);
             response.put("message", "Login successful");
             response.put("role", "admin");
@@ -114,44 +127,14 @@ public class Service {
 
     // 5. **filterDoctor Method**
     // This method provides filtering functionality for doctors based on name, specialty, and available time slots.
-    // - It supports various combinations of the three filters.
+    // - It supports any combination of the three filters, answered from the in-memory DoctorDirectory snapshot without SQL.
     // - If none of the filters are provided, it returns all available doctors.
     // This flexible filtering mechanism allows the frontend or consumers of the API to search and narrow down doctors based on user criteria.
     public Map<String, Object> filterDoctor(String name, String specialty, String time) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Doctor> doctors;
-
-            if (name != null && !name.isEmpty() && specialty != null && !specialty.isEmpty() && time != null && !time.isEmpty()) {
-                // Filter by name, specialty, and time
-                doctors = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
-                doctors = filterDoctorsByTime(doctors, time);
-            } else if (name != null && !name.isEmpty() && specialty != null && !specialty.isEmpty()) {
-                // Filter by name and specialty
-                doctors = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
-            } else if (name != null && !name.isEmpty() && time != null && !time.isEmpty()) {
-                // Filter by name and time
-                doctors = doctorRepository.findByNameLike(name);
-                doctors = filterDoctorsByTime(doctors, time);
-            } else if (specialty != null && !specialty.isEmpty() && time != null && !time.isEmpty()) {
-                // Filter by specialty and time
-                doctors = doctorRepository.findBySpecialtyIgnoreCase(specialty);
-                doctors = filterDoctorsByTime(doctors, time);
-            } else if (name != null && !name.isEmpty()) {
-                // Filter by name only
-                doctors = doctorRepository.findByNameLike(name);
-            } else if (specialty != null && !specialty.isEmpty()) {
-                // Filter by specialty only
-                doctors = doctorRepository.findBySpecialtyIgnoreCase(specialty);
-            } else if (time != null && !time.isEmpty()) {
-                // Filter by time only
-                doctors = doctorRepository.findAll();
-                doctors = filterDoctorsByTime(doctors, time);
-            } else {
-                // No filters, return all doctors
-                doctors = doctorRepository.findAll();
-            }
+            List<Doctor> doctors = doctorDirectory.search(name, specialty, time);
 
             response.put("doctors", doctors);
             response.put("count", doctors.size());
@@ -169,72 +152,35 @@ public class Service {
         return response;
     }
 
-    // Helper method to filter doctors by time (AM/PM)
-    private List<Doctor> filterDoctorsByTime(List<Doctor> doctors, String time) {
-        List<Doctor> filteredDoctors = new ArrayList<>();
-        boolean isAM = "AM".equalsIgnoreCase(time);
-        boolean isPM = "PM".equalsIgnoreCase(time);
-
-        for (Doctor doctor : doctors) {
-            List<String> availableTimes = doctor.getAvailableTimes();
-            if (availableTimes == null || availableTimes.isEmpty()) {
-                continue;
-            }
-
-            boolean hasMatchingTime = false;
-            for (String timeSlot : availableTimes) {
-                String startTime = timeSlot.split(" - ")[0];
-                int hour = Integer.parseInt(startTime.split(":")[0]);
-
-                if (isAM && hour < 12) {
-                    hasMatchingTime = true;
-                    break;
-                } else if (isPM && hour >= 12) {
-                    hasMatchingTime = true;
-                    break;
-                }
-            }
-
-            if (hasMatchingTime) {
-                filteredDoctors.add(doctor);
-            }
-        }
-
-        return filteredDoctors;
-    }
-
     // 6. **validateAppointment Method**
-    // This method validates if the requested appointment time for a doctor is available.
-    // - It first checks if the doctor exists in the repository.
-    // - Then, it retrieves the list of available time slots for the doctor on the specified date.
-    // - It compares the requested appointment time with the start times of these slots.
-    // - If a match is found, it returns 1 (valid appointment time).
+    // This method validates if the requested appointment time fits the doctor's schedule.
+    // - It first checks if the doctor exists in the in-memory doctor directory.
+    // - It then checks, using the pre-parsed schedule, that the requested time is the start of one of the doctor's slots.
+    // - It also checks that the date is inside the horizon for which bookable slots have been generated.
+    // - If it is, it returns 1 (valid appointment time).
     // - If no matching time slot is found, it returns 0 (invalid).
     // - If the doctor doesn’t exist, it returns -1.
-    // This logic prevents overlapping or invalid appointment bookings.
+    // No query is issued: whether the slot is still free is decided by the booking itself,
+    // which claims the slot with a conditional UPDATE on doctor_slots.
     public int validateAppointment(Appointment appointment) {
         try {
-            Long doctorId = appointment.getDoctor().getId();
-            Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
+            if (appointment.getDoctor() == null || appointment.getAppointmentTime() == null) {
+                return 0;
+            }
 
+            Optional<Doctor> doctorOpt = doctorDirectory.findById(appointment.getDoctor().getId());
             if (doctorOpt.isEmpty()) {
                 return -1; // Doctor doesn't exist
             }
 
-            // Get available time slots for the doctor on the appointment date
             LocalDateTime appointmentTime = appointment.getAppointmentTime();
-            List<String> availableSlots = doctorService.getDoctorAvailability(doctorId, appointmentTime.toLocalDate());
-
-            // Check if the appointment time matches any available slot
-            String appointmentTimeStr = appointmentTime.toLocalTime().toString().substring(0, 5); // HH:MM format
-            for (String slot : availableSlots) {
-                String slotStartTime = slot.split(" - ")[0];
-                if (slotStartTime.equals(appointmentTimeStr)) {
-                    return 1; // Valid appointment time
-                }
+            AvailabilitySchedule schedule = doctorOpt.get().getSchedule();
+            if (schedule.hasSlotStartingAt(TimeSlot.minuteOfDay(appointmentTime.toLocalTime()))
+                    && slotScheduler.isWithinHorizon(appointmentTime)) {
+                return 1; // Valid appointment time
             }
 
-            return 0; // Time is unavailable
+            return 0; // Time is not part of the doctor's schedule
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -281,7 +227,7 @@ public class Service {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            String token = tokenService.generateToken(patient.getEmail());
+            String token = tokenService.generateToken(patient.getEmail(), "patient", patient.getId());
             response.put("token", token);
             response.put("message", "Login successful");
             response.put("role", "patient");
@@ -299,43 +245,36 @@ public class Service {
 
     // 9. **filterPatient Method**
     // This method filters a patient's appointment history based on condition and doctor name.
-    // - It extracts the email from the JWT token to identify the patient.
+    // - It identifies the patient from the principal already resolved from the JWT token, without another lookup.
     // - Depending on which filters (condition, doctor name) are provided, it delegates the filtering logic to PatientService.
     // - If no filters are provided, it retrieves all appointments for the patient.
+    // - Results are keyset-paginated: the cursor and page size are passed through unchanged.
     // This flexible method supports patient-specific querying and enhances user experience on the client side.
-    public ResponseEntity<Map<String, Object>> filterPatient(String condition, String name, String token) {
+    public ResponseEntity<Map<String, Object>> filterPatient(
+            String condition, String name, AuthenticatedPrincipal principal, String cursor, int size) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // Extract email from token
-            String email = tokenService.extractEmail(token);
-            if (email == null) {
+            if (principal == null || !principal.hasRole("patient")) {
                 response.put("message", "Invalid token");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
 
-            // Get patient by email
-            Patient patient = patientRepository.findByEmail(email);
-            if (patient == null) {
-                response.put("message", "Patient not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-
-            Long patientId = patient.getId();
+            Long patientId = principal.getId();
 
             // Apply filters based on provided parameters
             if (condition != null && !condition.isEmpty() && name != null && !name.isEmpty()) {
                 // Filter by both condition and doctor name
-                return patientService.filterByDoctorAndCondition(condition, name, patientId);
+                return patientService.filterByDoctorAndCondition(condition, name, patientId, cursor, size);
             } else if (condition != null && !condition.isEmpty()) {
                 // Filter by condition only
-                return patientService.filterByCondition(condition, patientId);
+                return patientService.filterByCondition(condition, patientId, cursor, size);
             } else if (name != null && !name.isEmpty()) {
                 // Filter by doctor name only
-                return patientService.filterByDoctor(name, patientId);
+                return patientService.filterByDoctor(name, patientId, cursor, size);
             } else {
                 // No filters, return all appointments
-                return patientService.getPatientAppointment(patientId, token);
+                return patientService.getPatientAppointment(patientId, principal, cursor, size);
             }
 
         } catch (Exception e) {
@@ -344,4 +283,4 @@ public class Service {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+}
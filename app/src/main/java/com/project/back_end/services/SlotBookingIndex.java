@@ -0,0 +1,136 @@
+package com.project.back_end.services;
+
+import com.project.back_end.dto.BookedSlot;
+import com.project.back_end.models.TimeSlot;
+import com.project.back_end.repositories.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-date index of booked slots: for each slot start minute, a bitmap of the doctors (by ID) booked then.
+ * A date is loaded from the database with one query the first time it is asked for, and afterwards kept
+ * current by the booking and cancel paths. Entries are reloaded once older than the TTL, which picks up bookings
+ * made by other instances. Only dates from today up to the slot horizon are cached, so the cache holds at most
+ * one entry per day of the horizon; other dates are read through. Day entries are immutable and replaced atomically;
+ * loading runs inside compute, so a booking recorded while its date is loading waits for the load and is applied on top.
+ */
+@Component
+public class SlotBookingIndex {
+
+    private final AppointmentRepository appointmentRepository;
+    private final SlotScheduler slotScheduler;
+    private final long ttlNanos;
+
+    private final Map<LocalDate, DayBookings> days = new ConcurrentHashMap<>();
+
+    public SlotBookingIndex(AppointmentRepository appointmentRepository, SlotScheduler slotScheduler,
+                            @Value("${slots.booking-index.ttl-seconds:60}") long ttlSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.slotScheduler = slotScheduler;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * @param date the date
+     * @param minuteOfDay start minute of the slot
+     * @return a new bitmap of the doctors with an appointment starting at that time
+     */
+    public BitSet bookedAt(LocalDate date, int minuteOfDay) {
+        return (BitSet) bookings(date).doctorsAt(minuteOfDay).clone();
+    }
+
+    /**
+     * @param date the date
+     * @param minuteOfDay start minute of the slot
+     * @param doctorId the ID of the doctor
+     * @return whether the doctor has an appointment starting at that time
+     */
+    public boolean isBooked(LocalDate date, int minuteOfDay, Long doctorId) {
+        return bookings(date).doctorsAt(minuteOfDay).get(Math.toIntExact(doctorId));
+    }
+
+    /**
+     * Records a booking; call after it has been committed
+     */
+    public void book(Long doctorId, LocalDateTime time) {
+        days.computeIfPresent(time.toLocalDate(), (date, day) -> day.with(minuteOf(time), doctorId, true));
+    }
+
+    /**
+     * Records a cancellation; call after it has been committed
+     */
+    public void release(Long doctorId, LocalDateTime time) {
+        days.computeIfPresent(time.toLocalDate(), (date, day) -> day.with(minuteOf(time), doctorId, false));
+    }
+
+    private DayBookings bookings(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        if (date.isBefore(today) || !slotScheduler.isWithinHorizon(date.atStartOfDay())) {
+            return load(date);
+        }
+        DayBookings day = days.get(date);
+        if (day != null && isFresh(day)) {
+            return day;
+        }
+        if (day == null) {
+            // Past dates are no longer asked for by the booking flow
+            days.keySet().removeIf(cached -> cached.isBefore(today));
+        }
+        return days.compute(date, (key, current) -> current != null && isFresh(current) ? current : load(key));
+    }
+
+    private boolean isFresh(DayBookings day) {
+        return System.nanoTime() - day.loadedNanos < ttlNanos;
+    }
+
+    private DayBookings load(LocalDate date) {
+        Map<Integer, BitSet> byMinute = new HashMap<>();
+        for (BookedSlot slot : appointmentRepository.findBookedSlotsBetween(
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay())) {
+            byMinute.computeIfAbsent(minuteOf(slot.getAppointmentTime()), minute -> new BitSet())
+                    .set(Math.toIntExact(slot.getDoctorId()));
+        }
+        return new DayBookings(byMinute, System.nanoTime());
+    }
+
+    private static int minuteOf(LocalDateTime time) {
+        return TimeSlot.minuteOfDay(time.toLocalTime());
+    }
+
+    /**
+     * Immutable booked-doctor bitmaps of one date, by slot start minute
+     */
+    private static final class DayBookings {
+
+        private static final BitSet NONE = new BitSet();
+
+        private final Map<Integer, BitSet> byMinute;
+        private final long loadedNanos;
+
+        private DayBookings(Map<Integer, BitSet> byMinute, long loadedNanos) {
+            this.byMinute = Collections.unmodifiableMap(byMinute);
+            this.loadedNanos = loadedNanos;
+        }
+
+        private BitSet doctorsAt(int minuteOfDay) {
+            return byMinute.getOrDefault(minuteOfDay, NONE);
+        }
+
+        private DayBookings with(int minuteOfDay, Long doctorId, boolean booked) {
+            Map<Integer, BitSet> copy = new HashMap<>(byMinute);
+            BitSet doctors = (BitSet) doctorsAt(minuteOfDay).clone();
+            doctors.set(Math.toIntExact(doctorId), booked);
+            copy.put(minuteOfDay, doctors);
+            return new DayBookings(copy, loadedNanos);
+        }
+    }
+}
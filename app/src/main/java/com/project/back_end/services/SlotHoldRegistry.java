@@ -0,0 +1,226 @@
+package com.project.back_end.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived, in-memory reservations of a (doctor, time) slot for one patient while they complete a booking.
+ * Holds are placed and released with compare-and-set operations on concurrent maps, without locks.
+ * Expired holds are swept by a hashed timer wheel that one scheduled tick advances, so there is no
+ * per-hold timer thread and no polling of the database; a hold also stops counting as soon as it expires,
+ * whether or not the wheel has swept it yet. Each patient may have at most maxPerPatient live holds at a time.
+ */
+@Component
+public class SlotHoldRegistry {
+
+    private static final int WHEEL_SIZE = 512;
+    private static final long TICK_MILLIS = 1000;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+    private final long ttlMillis;
+    private final int maxPerPatient;
+    private final long startNanos = System.nanoTime();
+
+    private final Map<SlotKey, Hold> holdsBySlot = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holdsById = new ConcurrentHashMap<>();
+    /** IDs of each patient's holds; the sets are only read and written inside compute on their entry */
+    private final Map<Long, Set<String>> holdsByPatient = new ConcurrentHashMap<>();
+    private final Queue<Hold>[] wheel;
+
+    /** Last tick whose bucket was swept; only written by the scheduled tick */
+    private long sweptTick;
+
+    @SuppressWarnings("unchecked")
+    public SlotHoldRegistry(@Value("${holds.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${holds.max-per-patient:3}") int maxPerPatient) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.maxPerPatient = maxPerPatient;
+        this.wheel = new Queue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Holds a slot for a patient; an existing hold of the same patient on the slot is renewed
+     * @param doctorId the ID of the doctor
+     * @param time start of the slot
+     * @param patientId the ID of the patient
+     * @return the new hold, or null if another patient holds the slot
+     * @throws IllegalStateException if the patient already has maxPerPatient live holds on other slots
+     */
+    public Hold hold(Long doctorId, LocalDateTime time, Long patientId) {
+        long now = System.nanoTime();
+        SlotKey key = new SlotKey(doctorId, time);
+        Hold hold = new Hold(UUID.randomUUID().toString(), key, patientId,
+                now + TimeUnit.MILLISECONDS.toNanos(ttlMillis), Instant.now().plusMillis(ttlMillis));
+
+        // Reserve a place among the patient's holds first; a hold being renewed on the same slot does not count.
+        // The hold is published by ID within the reservation, so a concurrent hold() of the same patient counts it
+        // instead of pruning it as unknown.
+        boolean[] reserved = new boolean[1];
+        holdsByPatient.compute(patientId, (id, ids) -> {
+            Set<String> live = ids != null ? ids : new HashSet<>();
+            live.removeIf(holdId -> {
+                Hold other = holdsById.get(holdId);
+                return other == null || other.isExpired(now);
+            });
+            int counted = 0;
+            for (String holdId : live) {
+                Hold other = holdsById.get(holdId);
+                if (other != null && !other.key.equals(key)) {
+                    counted++;
+                }
+            }
+            if (counted < maxPerPatient) {
+                holdsById.put(hold.id, hold);
+                live.add(hold.id);
+                reserved[0] = true;
+            }
+            return live.isEmpty() ? null : live;
+        });
+        if (!reserved[0]) {
+            throw new IllegalStateException("Patient " + patientId + " already holds " + maxPerPatient + " slots");
+        }
+
+        Hold existing;
+        while ((existing = holdsBySlot.putIfAbsent(key, hold)) != null) {
+            if (!existing.isExpired(now) && !existing.patientId.equals(patientId)) {
+                remove(hold);
+                return null;
+            }
+            if (holdsBySlot.replace(key, existing, hold)) {
+                holdsById.remove(existing.id, existing);
+                forget(existing);
+                break;
+            }
+        }
+
+        // Swept at the first tick after its expiry
+        long expiryTick = (hold.expiresAtNanos - startNanos) / TICK_NANOS + 1;
+        wheel[(int) (expiryTick % WHEEL_SIZE)].add(hold);
+        return hold;
+    }
+
+    /**
+     * Releases a hold by ID
+     * @param holdId the ID returned when the hold was placed
+     * @param patientId the ID of the patient releasing it
+     * @return whether a live hold of that patient was released
+     */
+    public boolean release(String holdId, Long patientId) {
+        Hold hold = holdsById.get(holdId);
+        if (hold == null || !hold.patientId.equals(patientId)) {
+            return false;
+        }
+        remove(hold);
+        return !hold.isExpired(System.nanoTime());
+    }
+
+    /**
+     * Releases the patient's own hold on a slot, e.g. once they have booked it
+     */
+    public void releaseSlot(Long doctorId, LocalDateTime time, Long patientId) {
+        Hold hold = holdsBySlot.get(new SlotKey(doctorId, time));
+        if (hold != null && hold.patientId.equals(patientId)) {
+            remove(hold);
+        }
+    }
+
+    /**
+     * @param patientId the patient asking, or null if it is not a patient
+     * @return whether a live hold of anyone else covers the slot
+     */
+    public boolean isHeldByOther(Long doctorId, LocalDateTime time, Long patientId) {
+        Hold hold = holdsBySlot.get(new SlotKey(doctorId, time));
+        return hold != null && !hold.isExpired(System.nanoTime()) && !hold.patientId.equals(patientId);
+    }
+
+    /**
+     * Advances the wheel and sweeps the holds that expired since the last tick
+     */
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public synchronized void tick() {
+        long now = System.nanoTime();
+        long currentTick = (now - startNanos) / TICK_NANOS;
+
+        // After a long pause one full turn visits every bucket
+        for (long tick = Math.max(sweptTick + 1, currentTick - WHEEL_SIZE + 1); tick <= currentTick; tick++) {
+            Iterator<Hold> bucket = wheel[(int) (tick % WHEEL_SIZE)].iterator();
+            while (bucket.hasNext()) {
+                Hold hold = bucket.next();
+                if (hold.isExpired(now) || holdsById.get(hold.id) != hold) {
+                    // Expired, or released or replaced earlier
+                    bucket.remove();
+                    remove(hold);
+                }
+            }
+        }
+        sweptTick = currentTick;
+    }
+
+    public int size() {
+        return holdsById.size();
+    }
+
+    private void remove(Hold hold) {
+        holdsBySlot.remove(hold.key, hold);
+        holdsById.remove(hold.id, hold);
+        forget(hold);
+    }
+
+    private void forget(Hold hold) {
+        holdsByPatient.computeIfPresent(hold.patientId, (id, ids) -> {
+            ids.remove(hold.id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private record SlotKey(Long doctorId, LocalDateTime time) {
+    }
+
+    /**
+     * A placed hold
+     */
+    public static final class Hold {
+
+        private final String id;
+        private final SlotKey key;
+        private final Long patientId;
+        private final long expiresAtNanos;
+        private final Instant expiresAt;
+
+        private Hold(String id, SlotKey key, Long patientId, long expiresAtNanos, Instant expiresAt) {
+            this.id = id;
+            this.key = key;
+            this.patientId = patientId;
+            this.expiresAtNanos = expiresAtNanos;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
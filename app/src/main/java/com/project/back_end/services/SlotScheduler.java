@@ -0,0 +1,187 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.SchedulingConfig;
+import com.project.back_end.models.AvailabilitySchedule;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.TimeSlot;
+import com.project.back_end.repositories.DoctorRepository;
+import com.project.back_end.repositories.DoctorSlotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materializes each doctor's daily template into concrete doctor_slots rows over a rolling horizon.
+ * Runs at startup and once a day to extend the horizon, and per doctor when a doctor is added or changed.
+ * Inserts use INSERT IGNORE, so re-running never duplicates a slot or touches one that is already booked.
+ * Work on one doctor is serialized by a per-doctor lock, so updating one doctor neither waits for the daily run
+ * nor for updates of other doctors.
+ */
+@Component
+public class SlotScheduler {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SLOT =
+            "INSERT IGNORE INTO doctor_slots (doctor_id, slot_time, slot_end, state) VALUES (?, ?, ?, 'FREE')";
+
+    private static final String MARK_BOOKED =
+            "UPDATE doctor_slots s JOIN appointments a " +
+            "ON a.doctor_id = s.doctor_id AND a.appointment_time = s.slot_time " +
+            "SET s.state = 'BOOKED' " +
+            "WHERE s.state = 'FREE' AND s.slot_time >= ?";
+
+    private static final String MARK_DOCTOR_BOOKED = MARK_BOOKED + " AND s.doctor_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DoctorRepository doctorRepository;
+    private final DoctorSlotRepository doctorSlotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonWeeks;
+
+    private final Object horizonLock = new Object();
+    private final Map<Long, Object> doctorLocks = new ConcurrentHashMap<>();
+    /** When each doctor's slots were last generated from their own, current template */
+    private final Map<Long, Long> generatedAt = new ConcurrentHashMap<>();
+
+    /** Slots exist for every day before this date; null until the first run completes */
+    private volatile LocalDate generatedUntil;
+
+    public SlotScheduler(JdbcTemplate jdbcTemplate, DoctorRepository doctorRepository,
+                         DoctorSlotRepository doctorSlotRepository, TransactionTemplate transactionTemplate,
+                         @Value("${slots.horizon-weeks:4}") int horizonWeeks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.doctorRepository = doctorRepository;
+        this.doctorSlotRepository = doctorSlotRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.horizonWeeks = horizonWeeks;
+    }
+
+    /**
+     * Drops past slots and generates every doctor's slots up to the horizon.
+     * The first run starts on the batch scheduler right after startup instead of holding up readiness;
+     * bookings are rejected as outside the horizon until it completes.
+     */
+    @Scheduled(initialDelay = 0, scheduler = SchedulingConfig.BATCH_SCHEDULER)
+    @Scheduled(cron = "${slots.generation-cron:0 15 0 * * *}", scheduler = SchedulingConfig.BATCH_SCHEDULER)
+    public void extendHorizon() {
+        synchronized (horizonLock) {
+            try {
+                LocalDate today = LocalDate.now();
+                LocalDate until = today.plusWeeks(horizonWeeks);
+                long loadedAt = System.nanoTime();
+
+                doctorSlotRepository.deleteAllBefore(today.atStartOfDay());
+                for (Doctor doctor : doctorRepository.findAllWithAvailableTimes()) {
+                    synchronized (lockFor(doctor.getId())) {
+                        // A doctor generated or regenerated since the load already has the whole horizon, from a newer template
+                        Long generated = generatedAt.get(doctor.getId());
+                        if (generated == null || generated - loadedAt < 0) {
+                            insertSlots(doctor, today.atStartOfDay(), until);
+                        }
+                    }
+                }
+                generatedAt.values().removeIf(generated -> generated - loadedAt < 0);
+                // Slots of appointments booked before their slot rows existed
+                jdbcTemplate.update(MARK_BOOKED, today.atStartOfDay());
+
+                generatedUntil = until;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @param time start of a requested appointment
+     * @return whether slot rows have been generated for that day, i.e. it can be claimed
+     */
+    public boolean isWithinHorizon(LocalDateTime time) {
+        LocalDate until = generatedUntil;
+        return until != null && time.toLocalDate().isBefore(until);
+    }
+
+    /**
+     * @return the first date without slot rows; today until the first run completes
+     */
+    public LocalDate getHorizonEnd() {
+        LocalDate until = generatedUntil;
+        return until != null ? until : LocalDate.now();
+    }
+
+    /**
+     * Generates the slots of a newly added doctor up to the full horizon
+     */
+    public void generate(Doctor doctor) {
+        synchronized (lockFor(doctor.getId())) {
+            insertSlots(doctor, LocalDateTime.now(), LocalDate.now().plusWeeks(horizonWeeks));
+            generatedAt.put(doctor.getId(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Replaces a doctor's future free slots after their template changed; booked slots are kept.
+     * Runs in one transaction, so a booking never sees the doctor without free slots halfway through.
+     */
+    public void regenerate(Doctor doctor) {
+        synchronized (lockFor(doctor.getId())) {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                doctorSlotRepository.deleteFreeFrom(doctor.getId(), now);
+                insertSlots(doctor, now, LocalDate.now().plusWeeks(horizonWeeks));
+                jdbcTemplate.update(MARK_DOCTOR_BOOKED, now, doctor.getId());
+            });
+            generatedAt.put(doctor.getId(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Deletes all slots of a doctor that is about to be deleted
+     */
+    public void removeDoctor(Long doctorId) {
+        synchronized (lockFor(doctorId)) {
+            doctorSlotRepository.deleteAllByDoctorId(doctorId);
+        }
+        doctorLocks.remove(doctorId);
+        generatedAt.remove(doctorId);
+    }
+
+    private Object lockFor(Long doctorId) {
+        return doctorLocks.computeIfAbsent(doctorId, id -> new Object());
+    }
+
+    private void insertSlots(Doctor doctor, LocalDateTime from, LocalDate until) {
+        AvailabilitySchedule schedule = doctor.getSchedule();
+        if (schedule.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (LocalDate date = from.toLocalDate(); date.isBefore(until); date = date.plusDays(1)) {
+            LocalDateTime midnight = date.atStartOfDay();
+            for (TimeSlot slot : schedule.getSlots()) {
+                LocalDateTime start = midnight.plusMinutes(slot.getStartMinute());
+                if (start.isBefore(from)) {
+                    continue;
+                }
+                batch.add(new Object[]{doctor.getId(), start, midnight.plusMinutes(slot.getEndMinute())});
+                if (batch.size() == BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(INSERT_SLOT, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SLOT, batch);
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package com.project.back_end.services;
 
-import com.project.back_end.repositories.AdminRepository;
-import com.project.back_end.repositories.DoctorRepository;
-import com.project.back_end.repositories.PatientRepository;
+import com.project.back_end.security.AuthenticatedPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class TokenService {
@@ -18,133 +21,188 @@ public class TokenService {
     // The @Component annotation marks this class as a Spring component, meaning Spring will manage it as a bean within its application context.
     // This allows the class to be injected into other Spring-managed components (like services or controllers) where it's needed.
 
-    private final AdminRepository adminRepository;
-    private final DoctorRepository doctorRepository;
-    private final PatientRepository patientRepository;
+    private static final long TOKEN_VALIDITY_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private static final String ROLE_CLAIM = "role";
+    private static final String ID_CLAIM = "id";
 
-    // 2. **Constructor Injection for Dependencies**
-    // The constructor injects dependencies for `AdminRepository`, `DoctorRepository`, and `PatientRepository`,
-    // allowing the service to interact with the database and validate users based on their role (admin, doctor, or patient).
-    // Constructor injection ensures that the class is initialized with all required dependencies, promoting immutability and making the class testable.
-    public TokenService(AdminRepository adminRepository, DoctorRepository doctorRepository, PatientRepository patientRepository) {
-        this.adminRepository = adminRepository;
-        this.doctorRepository = doctorRepository;
-        this.patientRepository = patientRepository;
-    }
+    private static final Map<String, String> SELECT_EPOCH = Map.of(
+            "admin", "SELECT token_epoch FROM admins WHERE id = ?",
+            "doctor", "SELECT token_epoch FROM doctors WHERE id = ?",
+            "patient", "SELECT token_epoch FROM patients WHERE id = ?");
+    private static final Map<String, String> UPDATE_EPOCH = Map.of(
+            "admin", "UPDATE admins SET token_epoch = ? WHERE id = ?",
+            "doctor", "UPDATE doctors SET token_epoch = ? WHERE id = ?",
+            "patient", "UPDATE patients SET token_epoch = ? WHERE id = ?");
+
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+    private final VerifiedTokenCache verifiedTokens;
+    private final JdbcTemplate jdbcTemplate;
 
-    // 3. **getSigningKey Method**
-    // This method retrieves the HMAC SHA key used to sign JWT tokens.
-    // It uses the `jwt.secret` value, which is provided from an external source (like application properties).
+    // 2. **Revocation Epochs**
+    // Every token carries signed role and id claims, so most requests never have to look the user up in the database.
+    // Each principal row stores a token epoch; tokens issued at or before it are rejected. It is read only when a token's
+    // signature is verified, i.e. on a cache miss, and cached verifications are re-checked after `jwt.epoch-check-seconds`,
+    // so a revocation made on another instance is honoured within that interval and survives restarts.
+    // Revocations made here are also kept per "role:id" in memory so they apply to cached tokens immediately;
+    // those entries are dropped once every token they could reject has expired anyway.
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    // 3. **Constructor**
+    // The HMAC SHA signing key and the JWT parser are built once at startup from the `jwt.secret` property.
     // The `Keys.hmacShaKeyFor()` method converts the secret key string into a valid `SecretKey` for signing and verification of JWTs.
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // Both are immutable and thread-safe, so they are shared by every request.
+    public TokenService(@Value("${jwt.secret}") String jwtSecret,
+                        @Value("${jwt.cache.max-size:10000}") int cacheMaxSize,
+                        @Value("${jwt.epoch-check-seconds:60}") long epochCheckSeconds,
+                        JdbcTemplate jdbcTemplate) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = new VerifiedTokenCache(cacheMaxSize, epochCheckSeconds * 1000);
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     // 4. **generateToken Method**
-    // This method generates a JWT token for a user based on their email.
-    // - The `subject` of the token is set to the user's email, which is used as an identifier.
+    // This method generates a JWT token for a user of the given role.
+    // - The `subject` of the token is set to the user's identifier (username for admins, email for doctors and patients).
+    // - The `role` and `id` claims identify the principal, so later requests can be authorized from the token alone.
     // - The `issuedAt` is set to the current date and time.
     // - The `expiration` is set to 7 days from the issue date, ensuring the token expires after one week.
-    // - The token is signed using the signing key generated by `getSigningKey()`, making it secure and tamper-proof.
+    // - The token is signed using the shared signing key, making it secure and tamper-proof.
     // The method returns the JWT token as a string.
-    public String generateToken(String identifier) {
+    public String generateToken(String identifier, String role, Long id) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .setSubject(identifier)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 7 * 24 * 60 * 60 * 1000)) // 7 days
-                .signWith(getSigningKey())
+                .subject(identifier)
+                .claim(ROLE_CLAIM, role)
+                .claim(ID_CLAIM, id)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + TOKEN_VALIDITY_MS))
+                .signWith(signingKey)
                 .compact();
     }
 
     // Method to generate token for doctor with additional claims
     public String generateTokenForDoctor(Long doctorId, String email) {
-        return Jwts.builder()
-                .setSubject(email)
-                .claim("doctorId", doctorId)
-                .claim("role", "doctor")
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 7 * 24 * 60 * 60 * 1000))
-                .signWith(getSigningKey())
-                .compact();
+        return generateToken(email, "doctor", doctorId);
     }
 
-    // 5. **extractEmail Method**
-    // This method extracts the user's email (subject) from the provided JWT token.
-    // - The token is first verified using the signing key to ensure it hasn’t been tampered with.
-    // - After verification, the token is parsed, and the subject (which represents the email) is extracted.
-    // This method allows the application to retrieve the user's identity (email) from the token for further use.
-    public String extractEmail(String token) {
-        try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (Exception e) {
+    // 5. **parseClaims Method**
+    // Verifies the signature and expiration of the token and returns its claims, or null if the token is invalid.
+    // Verified claims are cached, so a token that is reused skips HMAC verification and the epoch lookup entirely.
+    private Claims parseClaims(String token) {
+        if (token == null) {
             return null;
         }
+        return verifiedTokens.get(token, this::verifyClaims);
     }
 
-    // Method to extract patient ID from token
-    public Long extractPatientId(String token) {
+    private Claims verifyClaims(String token) {
         try {
-            String email = extractEmail(token);
-            if (email != null) {
-                var patient = patientRepository.findByEmail(email);
-                return patient != null ? patient.getId() : null;
-            }
-            return null;
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            return isAfterEpoch(claims) ? claims : null;
         } catch (Exception e) {
             return null;
         }
     }
 
+    // Rejects tokens of principals that no longer exist or that were issued at or before the stored token epoch
+    private boolean isAfterEpoch(Claims claims) {
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Number id = claims.get(ID_CLAIM, Number.class);
+        String sql = role != null ? SELECT_EPOCH.get(role.toLowerCase()) : null;
+        if (sql == null || id == null) {
+            return false;
+        }
+
+        Long epoch = jdbcTemplate.query(sql, rows -> rows.next() ? rows.getLong(1) : null, id.longValue());
+        Date issuedAt = claims.getIssuedAt();
+        return epoch != null && issuedAt != null && issuedAt.getTime() > epoch;
+    }
+
+    // Number of token lookups answered from the verified-token cache
+    public long getCacheHits() {
+        return verifiedTokens.getHits();
+    }
+
+    // Number of token lookups that required signature verification
+    public long getCacheMisses() {
+        return verifiedTokens.getMisses();
+    }
+
+    // 6. **extractEmail Method**
+    // This method extracts the user's email (subject) from the provided JWT token.
+    // - The token is first verified using the signing key to ensure it hasn't been tampered with.
+    // - After verification, the token is parsed, and the subject (which represents the email) is extracted.
+    // This method allows the application to retrieve the user's identity (email) from the token for further use.
+    public String extractEmail(String token) {
+        Claims claims = parseClaims(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    // Method to extract patient ID from token
+    public Long extractPatientId(String token) {
+        return extractId(token, "patient");
+    }
+
     // Method to extract doctor ID from token
     public Long extractDoctorId(String token) {
-        try {
-            String email = extractEmail(token);
-            if (email != null) {
-                var doctor = doctorRepository.findByEmail(email);
-                return doctor != null ? doctor.getId() : null;
-            }
-            return null;
-        } catch (Exception e) {
+        return extractId(token, "doctor");
+    }
+
+    // Returns the signed id claim if the token is valid for the given role
+    private Long extractId(String token, String role) {
+        Claims claims = parseClaims(token);
+        if (claims == null || !isValidFor(claims, role)) {
             return null;
         }
+        return claims.get(ID_CLAIM, Number.class).longValue();
     }
 
-    // 6. **validateToken Method**
-    // This method validates whether a provided JWT token is valid for a specific user role (admin, doctor, or patient).
-    // - It first extracts the email from the token using the `extractEmail()` method.
-    // - Depending on the role (`admin`, `doctor`, or `patient`), it checks the corresponding repository (AdminRepository, DoctorRepository, or PatientRepository)
-    //   to see if a user with the extracted email exists.
-    // - If a match is found for the specified user role, it returns true, indicating the token is valid.
-    // - If the role or user does not exist, it returns false, indicating the token is invalid.
-    // - The method gracefully handles any errors by returning false if the token is invalid or an exception occurs.
-    // This ensures secure access control based on the user's role and their existence in the system.
-    public boolean validateToken(String token, String user) {
-        try {
-            String email = extractEmail(token);
-            if (email == null) {
-                return false;
-            }
-
-            switch (user.toLowerCase()) {
-                case "admin":
-                    return adminRepository.findByUsername(email) != null;
-                case "doctor":
-                    return doctorRepository.findByEmail(email) != null;
-                case "patient":
-                    return patientRepository.findByEmail(email) != null;
-                default:
-                    return false;
-            }
-        } catch (Exception e) {
+    private boolean isValidFor(Claims claims, String user) {
+        return user != null && isValid(claims) && user.equalsIgnoreCase(claims.get(ROLE_CLAIM, String.class));
+    }
+
+    // Checks the role and id claims and rejects tokens revoked on this instance since they were verified
+    private boolean isValid(Claims claims) {
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Number id = claims.get(ID_CLAIM, Number.class);
+        if (role == null || id == null) {
             return false;
         }
+
+        Long revokedAt = revokedBefore.get(principalKey(role, id.longValue()));
+        Date issuedAt = claims.getIssuedAt();
+        return revokedAt == null || (issuedAt != null && issuedAt.getTime() > revokedAt);
+    }
+
+    // 7. **resolvePrincipal Method**
+    // Builds the authenticated principal (role, id and email) carried by a valid token, or returns null if the token is invalid.
+    // This is resolved once per request by the PrincipalArgumentResolver and handed to controllers and services.
+    public AuthenticatedPrincipal resolvePrincipal(String token) {
+        Claims claims = parseClaims(token);
+        if (claims == null || !isValid(claims)) {
+            return null;
+        }
+        return new AuthenticatedPrincipal(
+                claims.get(ROLE_CLAIM, String.class).toLowerCase(),
+                claims.get(ID_CLAIM, Number.class).longValue(),
+                claims.getSubject());
+    }
+
+    // 8. **revokeTokens Method**
+    // Invalidates every token issued so far to the given principal, e.g. after the account has been deleted.
+    // The epoch is persisted on the principal's row; a deleted row rejects its tokens on the next lookup anyway.
+    // JWT issue times have second precision, so a token issued in the same second as the revocation is rejected too.
+    public void revokeTokens(String role, Long id) {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update(UPDATE_EPOCH.get(role.toLowerCase()), now, id);
+        revokedBefore.values().removeIf(revokedAt -> revokedAt < now - TOKEN_VALIDITY_MS);
+        revokedBefore.put(principalKey(role, id), now);
+    }
+
+    private String principalKey(String role, long id) {
+        return role.toLowerCase() + ":" + id;
     }
-}
\ No newline at end of file
+}
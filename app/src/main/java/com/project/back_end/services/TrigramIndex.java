@@ -0,0 +1,125 @@
+package com.project.back_end.services;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from lower-cased character trigrams to the IDs (as bit positions) whose text contains them.
+ * A case-insensitive substring search intersects the posting lists of the query's trigrams, smallest first,
+ * and verifies the few remaining candidates against the stored text. Updates are incremental; all access
+ * is guarded by a read-write lock.
+ */
+final class TrigramIndex {
+
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final Map<Long, String> texts = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds an ID or replaces its text
+     */
+    void put(Long id, String text) {
+        String lower = text != null ? text.toLowerCase() : "";
+        int bit = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            texts.put(id, lower);
+            for (String trigram : trigrams(lower)) {
+                postings.computeIfAbsent(trigram, key -> new BitSet()).set(bit);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the IDs whose text contains the query, ignoring case
+     * @param query the substring to search for; queries shorter than three characters scan every text
+     * @return a new set of matching IDs
+     */
+    BitSet search(String query) {
+        String lower = query.toLowerCase();
+        Set<String> queryTrigrams = trigrams(lower);
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = new BitSet();
+            if (queryTrigrams.isEmpty()) {
+                for (Map.Entry<Long, String> entry : texts.entrySet()) {
+                    if (entry.getValue().contains(lower)) {
+                        matches.set(Math.toIntExact(entry.getKey()));
+                    }
+                }
+                return matches;
+            }
+
+            List<BitSet> lists = new ArrayList<>(queryTrigrams.size());
+            for (String trigram : queryTrigrams) {
+                BitSet ids = postings.get(trigram);
+                if (ids == null) {
+                    return matches;
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(BitSet::cardinality));
+
+            matches.or(lists.get(0));
+            for (int i = 1; i < lists.size() && !matches.isEmpty(); i++) {
+                matches.and(lists.get(i));
+            }
+
+            // Every trigram being present does not mean they are adjacent and in order
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                if (!texts.get((long) id).contains(lower)) {
+                    matches.clear(id);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long id) {
+        String previous = texts.remove(id);
+        if (previous == null) {
+            return;
+        }
+        int bit = Math.toIntExact(id);
+        for (String trigram : trigrams(previous)) {
+            BitSet ids = postings.get(trigram);
+            if (ids != null) {
+                ids.clear(bit);
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,115 @@
+package com.project.back_end.services;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, concurrent cache of JWT claims whose signature has already been verified.
+ * Entries are keyed by a SHA-256 digest of the token and expire at the token's own expiration,
+ * or after maxAgeMillis so that the token is verified again against the principal's current token epoch.
+ * The cache is split into access-ordered segments, each locked on its own; a full segment drops its least
+ * recently used entry in constant time.
+ */
+class VerifiedTokenCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final long maxAgeMillis;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    VerifiedTokenCache(int maxSize, long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+        int segmentSize = maxSize > 0 ? Math.max(1, maxSize / SEGMENTS) : 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Returns the cached claims for the token, or verifies it and caches the result
+     * @param token the compact JWT
+     * @param verifier verifies the token and returns its claims, or null if it is invalid
+     * @return the verified claims, or null if the token is invalid or expired
+     */
+    Claims get(String token, Function<String, Claims> verifier) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        Segment segment = segments[(key.hashCode() & Integer.MAX_VALUE) % SEGMENTS];
+
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.increment();
+                    return entry.claims;
+                }
+                segment.remove(key);
+            }
+        }
+
+        // Verified outside the lock; two concurrent misses for the same token simply both verify it
+        misses.increment();
+        Claims claims = verifier.apply(token);
+        Date expiration = claims != null ? claims.getExpiration() : null;
+        if (expiration != null && segment.maxSize > 0) {
+            synchronized (segment) {
+                segment.put(key, new Entry(claims, Math.min(expiration.getTime(), now + maxAgeMillis)));
+            }
+        }
+        return claims;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Access-ordered map that drops its least recently used entry once it outgrows maxSize; guarded by its own monitor
+    private static final class Segment extends LinkedHashMap<String, Entry> {
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedTokenCache.Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.project.back_end.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control in front of booking for high-demand doctors.
+ * Patients join a per-doctor FIFO queue and poll their position; at most maxActive of them per doctor
+ * hold an admission at a time, and only an admitted patient may book that doctor. An admission ends when
+ * the patient books or when it expires, and the next waiting patient is admitted in arrival order.
+ * Doctors are gated when listed in waiting-room.doctors, or for a while after their schedule is updated.
+ */
+@Component
+public class WaitingRoom {
+
+    /** A waiting ticket that has not been polled for this long is dropped when it would be admitted */
+    private static final long ABANDON_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Set<Long> designatedDoctors;
+    private final int maxActive;
+    private final long admissionTtlNanos;
+    private final long releaseWindowNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<Long, Long> gatedUntil = new ConcurrentHashMap<>();
+    private final Map<Long, DoctorQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WaitingRoom(@Value("${waiting-room.doctors:}") String designatedDoctors,
+                       @Value("${waiting-room.max-active:20}") int maxActive,
+                       @Value("${waiting-room.admission-ttl-seconds:120}") long admissionTtlSeconds,
+                       @Value("${waiting-room.release-window-minutes:15}") long releaseWindowMinutes) {
+        this(designatedDoctors, maxActive, admissionTtlSeconds, releaseWindowMinutes, System::nanoTime);
+    }
+
+    // Takes the clock as a parameter so tests can control time
+    WaitingRoom(String designatedDoctors, int maxActive, long admissionTtlSeconds, long releaseWindowMinutes,
+                LongSupplier nanoClock) {
+        Set<Long> doctors = new HashSet<>();
+        for (String id : designatedDoctors.split(",")) {
+            if (!id.isBlank()) {
+                doctors.add(Long.parseLong(id.trim()));
+            }
+        }
+        this.designatedDoctors = Collections.unmodifiableSet(doctors);
+        this.maxActive = maxActive;
+        this.admissionTtlNanos = TimeUnit.SECONDS.toNanos(admissionTtlSeconds);
+        this.releaseWindowNanos = TimeUnit.MINUTES.toNanos(releaseWindowMinutes);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return whether booking the doctor currently requires an admission
+     */
+    public boolean isGated(Long doctorId) {
+        if (designatedDoctors.contains(doctorId)) {
+            return true;
+        }
+        Long until = gatedUntil.get(doctorId);
+        return until != null && nanoClock.getAsLong() - until < 0;
+    }
+
+    /**
+     * Gates a doctor for the release window, e.g. right after a new schedule was published
+     */
+    public void openReleaseWindow(Long doctorId) {
+        gatedUntil.put(doctorId, nanoClock.getAsLong() + releaseWindowNanos);
+    }
+
+    /**
+     * Puts a patient in the doctor's queue; a patient already queued for the doctor keeps their place
+     * @return the patient's ticket
+     */
+    public Ticket join(Long doctorId, Long patientId) {
+        while (true) {
+            DoctorQueue queue = queues.computeIfAbsent(doctorId, id -> new DoctorQueue());
+            synchronized (queue) {
+                // advance() may have evicted the queue while it was empty; join the live one instead
+                if (queues.get(doctorId) != queue) {
+                    continue;
+                }
+                for (Ticket ticket : queue.waiting) {
+                    if (ticket.patientId.equals(patientId)) {
+                        return ticket;
+                    }
+                }
+                for (Ticket ticket : queue.admitted) {
+                    if (ticket.patientId.equals(patientId)) {
+                        return ticket;
+                    }
+                }
+                long now = nanoClock.getAsLong();
+                Ticket ticket = new Ticket(UUID.randomUUID().toString(), doctorId, patientId, now);
+                queue.waiting.addLast(ticket);
+                tickets.put(ticket.id, ticket);
+                admitNext(queue, now);
+                return ticket;
+            }
+        }
+    }
+
+    /**
+     * Reports a ticket's status and admits waiting patients if capacity has freed up
+     * @param ticketId the ticket ID returned by join
+     * @param patientId the patient polling
+     * @return ticket status, or null if the ticket is unknown, expired or not the patient's
+     */
+    public Map<String, Object> poll(String ticketId, Long patientId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.patientId.equals(patientId)) {
+            return null;
+        }
+        DoctorQueue queue = queues.get(ticket.doctorId);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            long now = nanoClock.getAsLong();
+            ticket.lastPolledNanos = now;
+            admitNext(queue, now);
+            if (!tickets.containsKey(ticketId)) {
+                return null;
+            }
+
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("ticketId", ticket.id);
+            status.put("doctorId", ticket.doctorId);
+            if (ticket.admissionToken != null) {
+                status.put("admitted", true);
+                status.put("admissionToken", ticket.admissionToken);
+                status.put("expiresAt", ticket.admissionExpiresAt.toString());
+            } else {
+                int position = 0;
+                for (Ticket waiting : queue.waiting) {
+                    if (waiting == ticket) {
+                        break;
+                    }
+                    position++;
+                }
+                status.put("admitted", false);
+                status.put("position", position + 1);
+            }
+            return status;
+        }
+    }
+
+    /**
+     * @return whether the admission token is live and was issued to this patient for this doctor
+     */
+    public boolean isAdmitted(Long doctorId, Long patientId, String admissionToken) {
+        if (admissionToken == null) {
+            return false;
+        }
+        DoctorQueue queue = queues.get(doctorId);
+        if (queue == null) {
+            return false;
+        }
+        synchronized (queue) {
+            for (Ticket ticket : queue.admitted) {
+                if (admissionToken.equals(ticket.admissionToken) && ticket.patientId.equals(patientId)) {
+                    return nanoClock.getAsLong() - ticket.admissionExpiresNanos < 0;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Ends an admission once the patient has booked, freeing capacity for the next patient
+     */
+    public void complete(Long doctorId, String admissionToken) {
+        DoctorQueue queue = queues.get(doctorId);
+        if (queue == null || admissionToken == null) {
+            return;
+        }
+        synchronized (queue) {
+            Iterator<Ticket> admitted = queue.admitted.iterator();
+            while (admitted.hasNext()) {
+                Ticket ticket = admitted.next();
+                if (admissionToken.equals(ticket.admissionToken)) {
+                    admitted.remove();
+                    tickets.remove(ticket.id);
+                }
+            }
+            admitNext(queue, nanoClock.getAsLong());
+        }
+    }
+
+    /**
+     * Expires admissions and admits waiting patients even when nobody polls
+     */
+    @Scheduled(fixedRate = 1000)
+    public void advance() {
+        long now = nanoClock.getAsLong();
+        gatedUntil.values().removeIf(until -> now - until >= 0);
+        for (Map.Entry<Long, DoctorQueue> entry : queues.entrySet()) {
+            DoctorQueue queue = entry.getValue();
+            synchronized (queue) {
+                admitNext(queue, now);
+                // Evicted under the queue lock, so a join blocked on it sees the eviction and retries
+                if (queue.waiting.isEmpty() && queue.admitted.isEmpty()) {
+                    queues.remove(entry.getKey(), queue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops expired admissions, then admits waiting patients in arrival order up to capacity; caller holds the queue lock
+     */
+    private void admitNext(DoctorQueue queue, long now) {
+        Iterator<Ticket> admitted = queue.admitted.iterator();
+        while (admitted.hasNext()) {
+            Ticket ticket = admitted.next();
+            if (now - ticket.admissionExpiresNanos >= 0) {
+                admitted.remove();
+                tickets.remove(ticket.id);
+            }
+        }
+
+        while (queue.admitted.size() < maxActive && !queue.waiting.isEmpty()) {
+            Ticket ticket = queue.waiting.pollFirst();
+            if (now - ticket.lastPolledNanos > ABANDON_NANOS) {
+                tickets.remove(ticket.id);
+                continue;
+            }
+            ticket.admissionToken = UUID.randomUUID().toString();
+            ticket.admissionExpiresNanos = now + admissionTtlNanos;
+            ticket.admissionExpiresAt = Instant.now().plusNanos(admissionTtlNanos);
+            queue.admitted.add(ticket);
+        }
+    }
+
+    private static final class DoctorQueue {
+
+        private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        private final List<Ticket> admitted = new ArrayList<>();
+    }
+
+    /**
+     * A patient's place in a doctor's queue; fields are guarded by the queue's lock
+     */
+    public static final class Ticket {
+
+        private final String id;
+        private final Long doctorId;
+        private final Long patientId;
+        private long lastPolledNanos;
+        private String admissionToken;
+        private long admissionExpiresNanos;
+        private Instant admissionExpiresAt;
+
+        private Ticket(String id, Long doctorId, Long patientId, long joinedNanos) {
+            this.id = id;
+            this.doctorId = doctorId;
+            this.patientId = patientId;
+            this.lastPolledNanos = joinedNanos;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
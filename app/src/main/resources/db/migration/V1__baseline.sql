@@ -0,0 +1,50 @@
+-- Baseline: the schema as previously generated by Hibernate from the entities.
+-- Existing databases created with ddl-auto=update are baselined at this version and skip it.
+-- Never edit this file: its checksum is recorded, so every later change goes into a new version.
+
+CREATE TABLE admins (
+    id       BIGINT       NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_admin_username UNIQUE (username)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci;
+
+CREATE TABLE doctors (
+    id        BIGINT       NOT NULL AUTO_INCREMENT,
+    name      VARCHAR(100) NOT NULL,
+    specialty VARCHAR(50)  NOT NULL,
+    email     VARCHAR(255) NOT NULL,
+    password  VARCHAR(255) NOT NULL,
+    phone     VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_doctor_email UNIQUE (email)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci;
+
+CREATE TABLE doctor_available_times (
+    doctor_id      BIGINT       NOT NULL,
+    available_time VARCHAR(255),
+    CONSTRAINT fk_available_time_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci;
+
+CREATE TABLE patients (
+    id       BIGINT       NOT NULL AUTO_INCREMENT,
+    name     VARCHAR(100) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    phone    VARCHAR(255) NOT NULL,
+    address  VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_patient_email UNIQUE (email)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci;
+
+CREATE TABLE appointments (
+    id               BIGINT      NOT NULL AUTO_INCREMENT,
+    doctor_id        BIGINT      NOT NULL,
+    patient_id       BIGINT      NOT NULL,
+    appointment_time DATETIME(6) NOT NULL,
+    status           INT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_appointment_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (id),
+    CONSTRAINT fk_appointment_patient FOREIGN KEY (patient_id) REFERENCES patients (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci;
@@ -0,0 +1,10 @@
+-- Indexes for lookups that used to scan the whole table.
+
+-- Patient registration checks for an existing email OR phone; with both columns indexed this is an index merge
+CREATE INDEX idx_patient_phone ON patients (phone);
+
+-- Doctor search by specialty; the column's case-insensitive collation makes plain equality ignore case
+CREATE INDEX idx_doctor_specialty ON doctors (specialty);
+
+-- Booked slots of all doctors over a time range (slot booking index); covering, the table is not read
+CREATE INDEX idx_appointment_time_doctor ON appointments (appointment_time, doctor_id);
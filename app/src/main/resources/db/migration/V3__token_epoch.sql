@@ -0,0 +1,6 @@
+-- Per-principal token epoch: tokens issued at or before it are rejected (epoch milliseconds, 0 = never revoked).
+-- Checked whenever a token's signature is verified, so revocations survive restarts and reach every instance.
+
+ALTER TABLE admins ADD COLUMN token_epoch BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE doctors ADD COLUMN token_epoch BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE patients ADD COLUMN token_epoch BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,23 @@
+-- Booking constraints and the slot table, added after the baseline.
+-- Databases baselined at V1 were created by ddl-auto=update from entities that had none of these.
+
+-- One appointment per doctor and time; booking treats a violation of this key as a taken slot.
+-- Fails if duplicate bookings already exist; resolve those before migrating.
+ALTER TABLE appointments
+    ADD CONSTRAINT uk_appointment_doctor_time UNIQUE (doctor_id, appointment_time),
+    ADD INDEX idx_appointment_patient_status_time (patient_id, status, appointment_time),
+    ADD INDEX idx_appointment_status_time (status, appointment_time),
+    ADD INDEX idx_appointment_patient_time (patient_id, appointment_time);
+
+-- Materialized slots over the booking horizon; SlotScheduler fills it on startup
+CREATE TABLE doctor_slots (
+    id        BIGINT                 NOT NULL AUTO_INCREMENT,
+    doctor_id BIGINT                 NOT NULL,
+    slot_time DATETIME(6)            NOT NULL,
+    slot_end  DATETIME(6)            NOT NULL,
+    state     ENUM ('FREE', 'BOOKED') NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_doctor_slot_doctor_time UNIQUE (doctor_id, slot_time),
+    INDEX idx_doctor_slot_time_state (slot_time, state),
+    CONSTRAINT fk_doctor_slot_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci;
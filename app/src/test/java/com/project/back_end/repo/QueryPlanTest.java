@@ -0,0 +1,233 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.DoctorSlot;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every repository query against the migrated schema, captures the SQL Hibernate generates for it and fails
+ * if its EXPLAIN shows a full table scan. Queries that read whole tables by design (startup loads of all doctors
+ * or patient names, infix LIKE searches without another filter) are not listed.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StatementRecorder.Config.class)
+class QueryPlanTest {
+
+	@Container
+	private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+	private static final int PAGE_ROWS = 21;
+
+	private static Connection connection;
+
+	@Autowired
+	private StatementRecorder recorder;
+
+	@Autowired
+	private AppointmentRepository appointmentRepository;
+
+	@Autowired
+	private DoctorRepository doctorRepository;
+
+	@Autowired
+	private DoctorSlotRepository doctorSlotRepository;
+
+	@Autowired
+	private PatientRepository patientRepository;
+
+	@Autowired
+	private AdminRepository adminRepository;
+
+	private final LocalDateTime dayStart = LocalDateTime.of(2030, 1, 5, 0, 0);
+	private final LocalDateTime dayEnd = LocalDateTime.of(2030, 1, 5, 23, 59, 59);
+	private final LocalDateTime weekEnd = LocalDateTime.of(2030, 1, 12, 0, 0);
+	private final LocalDateTime slotTime = LocalDateTime.of(2030, 1, 1, 2, 0);
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", mysql::getJdbcUrl);
+		registry.add("spring.datasource.username", mysql::getUsername);
+		registry.add("spring.datasource.password", mysql::getPassword);
+	}
+
+	@BeforeAll
+	static void migrateAndSeed() throws SQLException {
+		Flyway.configure()
+				.dataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword())
+				.load()
+				.migrate();
+		connection = DriverManager.getConnection(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+
+		// Enough rows that the optimizer prefers an index wherever one applies
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("SET SESSION cte_max_recursion_depth = 10000");
+			statement.execute("INSERT INTO admins (username, password) " + sequence(10) +
+					"SELECT CONCAT('admin', n), 'password' FROM seq");
+			statement.execute("INSERT INTO doctors (name, specialty, email, password, phone) " + sequence(100) +
+					"SELECT CONCAT('Doctor ', n), CONCAT('Specialty ', n % 10), CONCAT('doctor', n, '@example.com'), " +
+					"'password', LPAD(n, 10, '0') FROM seq");
+			statement.execute("INSERT INTO doctor_available_times (doctor_id, available_time) " + sequence(400) +
+					"SELECT (n - 1) % 100 + 1, CONCAT(LPAD(8 + (n - 1) DIV 100, 2, '0'), ':00-', " +
+					"LPAD(9 + (n - 1) DIV 100, 2, '0'), ':00') FROM seq");
+			statement.execute("INSERT INTO patients (name, email, password, phone, address) " + sequence(1000) +
+					"SELECT CONCAT('Patient ', n), CONCAT('patient', n, '@example.com'), 'password', " +
+					"LPAD(n, 10, '0'), 'Address' FROM seq");
+			statement.execute("INSERT INTO appointments (doctor_id, patient_id, appointment_time, status) " + sequence(5000) +
+					"SELECT (n - 1) % 100 + 1, (n - 1) % 1000 + 1, '2030-01-01' + INTERVAL n HOUR, n % 2 FROM seq");
+			statement.execute("INSERT INTO doctor_slots (doctor_id, slot_time, slot_end, state) " + sequence(5000) +
+					"SELECT (n - 1) % 100 + 1, '2030-01-01' + INTERVAL n HOUR, '2030-01-01' + INTERVAL n + 1 HOUR, " +
+					"IF(n % 2 = 0, 'FREE', 'BOOKED') FROM seq");
+			statement.execute("ANALYZE TABLE admins, doctors, doctor_available_times, patients, appointments, doctor_slots");
+		}
+	}
+
+	@AfterAll
+	static void close() throws SQLException {
+		if (connection != null) {
+			connection.close();
+		}
+	}
+
+	@Test
+	void appointmentQueriesUseIndexes() throws SQLException {
+		assertIndexed(() -> appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(1L, dayStart, dayEnd),
+				1L, dayStart, dayEnd);
+		assertIndexed(() -> appointmentRepository.findBookedSlots(List.of(1L, 2L, 3L), dayStart, weekEnd),
+				1L, 2L, 3L, dayStart, weekEnd);
+		assertIndexed(() -> appointmentRepository.findBookedSlotsBetween(dayStart, dayStart.plusDays(1)),
+				dayStart, dayStart.plusDays(1));
+		assertIndexed(() -> appointmentRepository.findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
+				1L, "patient 1", dayStart, dayEnd), 1L, "patient 1", dayStart, dayEnd);
+		assertIndexed(() -> appointmentRepository.findByDoctorIdAndPatientIdInAndAppointmentTimeBetween(
+				1L, List.of(1L, 101L, 201L), dayStart, dayEnd), 1L, 1L, 101L, 201L, dayStart, dayEnd);
+		assertIndexed(() -> appointmentRepository.countBookingsByDoctor());
+		assertIndexed(() -> appointmentRepository.lockOwnedSlot(10L, 10L), 10L, 10L);
+		assertIndexed(() -> appointmentRepository.updateOwned(10L, 10L, 2L, LocalDateTime.of(2031, 1, 1, 9, 0), 0),
+				2L, LocalDateTime.of(2031, 1, 1, 9, 0), 0, 10L, 10L);
+		assertIndexed(() -> appointmentRepository.deleteOwned(10L, 10L), 10L, 10L);
+		assertIndexed(() -> appointmentRepository.deleteAllByDoctorId(1L), 1L);
+	}
+
+	@Test
+	void appointmentStatusRolloverUsesIndex() throws SQLException {
+		// Issued through JdbcTemplate by AppointmentStatusRollover, so Hibernate never sees it
+		explainAndAssertIndexed("UPDATE appointments SET status = 1 WHERE status = 0 AND appointment_time < ? " +
+				"ORDER BY appointment_time LIMIT ?", LocalDateTime.of(2030, 1, 3, 0, 0), 500);
+	}
+
+	@Test
+	void patientAppointmentPagesUseIndexes() throws SQLException {
+		LocalDateTime after = LocalDateTime.of(2030, 1, 1, 0, 0);
+		LocalDateTime before = LocalDateTime.of(2030, 6, 1, 0, 0);
+		PageRequest page = PageRequest.of(0, PAGE_ROWS);
+
+		assertIndexed(() -> appointmentRepository.findByPatientId(1L, after, 0L, page),
+				1L, after, after, 0L, PAGE_ROWS);
+		assertIndexed(() -> appointmentRepository.findPastByPatientId(1L, before, after, 0L, page),
+				1L, before, after, after, 0L, PAGE_ROWS);
+		assertIndexed(() -> appointmentRepository.filterByDoctorNameAndPatientId("doctor 1", 1L, after, 0L, page),
+				"doctor 1", 1L, after, after, 0L, PAGE_ROWS);
+		assertIndexed(() -> appointmentRepository.filterPastByDoctorNameAndPatientId("doctor 1", 1L, before, after, 0L, page),
+				"doctor 1", 1L, before, after, after, 0L, PAGE_ROWS);
+	}
+
+	@Test
+	void doctorQueriesUseIndexes() throws SQLException {
+		assertIndexed(() -> doctorRepository.findByEmail("doctor10@example.com"), "doctor10@example.com");
+		assertIndexed(() -> doctorRepository.findBySpecialty("specialty 3"), "specialty 3");
+		assertIndexed(() -> doctorRepository.findByNameContainingIgnoreCaseAndSpecialty("doctor 1", "specialty 3"),
+				"specialty 3", "doctor 1");
+	}
+
+	@Test
+	void patientAndAdminQueriesUseIndexes() throws SQLException {
+		assertIndexed(() -> patientRepository.findByEmail("patient10@example.com"), "patient10@example.com");
+		assertIndexed(() -> patientRepository.findByEmailOrPhone("patient10@example.com", "0000000020"),
+				"patient10@example.com", "0000000020");
+		assertIndexed(() -> adminRepository.findByUsername("admin3"), "admin3");
+	}
+
+	@Test
+	void slotQueriesUseIndexes() throws SQLException {
+		LocalDateTime from = LocalDateTime.of(2030, 6, 1, 0, 0);
+
+		assertIndexed(() -> doctorSlotRepository.claim(2L, slotTime), 2L, slotTime);
+		assertIndexed(() -> doctorSlotRepository.releaseOwned(10L, 10L), 10L, 10L);
+		assertIndexed(() -> doctorSlotRepository.claimAll(2L, List.of(dayStart.plusHours(2), dayEnd)),
+				2L, dayStart.plusHours(2), dayEnd);
+		assertIndexed(() -> doctorSlotRepository.lockFirstFree(List.of(1L, 2L, 3L), slotTime), 1L, 2L, 3L, slotTime);
+		assertIndexed(() -> doctorSlotRepository.findSlotTimes(2L, slotTime, from, DoctorSlot.State.FREE),
+				2L, slotTime, from, DoctorSlot.State.FREE.name());
+		assertIndexed(() -> doctorSlotRepository.deleteFreeFrom(2L, from), 2L, from);
+		assertIndexed(() -> doctorSlotRepository.deleteAllByDoctorId(2L), 2L);
+		assertIndexed(() -> doctorSlotRepository.deleteAllBefore(weekEnd), weekEnd);
+	}
+
+	@Test
+	void slotSchedulerBookingSyncUsesIndexes() throws SQLException {
+		// Issued through JdbcTemplate by SlotScheduler, so Hibernate never sees it
+		explainAndAssertIndexed("UPDATE doctor_slots s JOIN appointments a " +
+				"ON a.doctor_id = s.doctor_id AND a.appointment_time = s.slot_time " +
+				"SET s.state = 'BOOKED' WHERE s.state = 'FREE' AND s.slot_time >= ?", LocalDateTime.of(2030, 7, 25, 0, 0));
+	}
+
+	private static String sequence(int count) {
+		return "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + count + ") ";
+	}
+
+	/**
+	 * Runs the repository call and explains the first statement Hibernate issued for it.
+	 * The parameters are the values Hibernate bound, in the order of the placeholders in that statement.
+	 */
+	private void assertIndexed(Runnable call, Object... parameters) throws SQLException {
+		recorder.clear();
+		call.run();
+		assertFalse(recorder.getStatements().isEmpty(), "The call issued no SQL");
+		explainAndAssertIndexed(recorder.getStatements().get(0), parameters);
+	}
+
+	private static void explainAndAssertIndexed(String sql, Object... parameters) throws SQLException {
+		assertEquals(sql.chars().filter(c -> c == '?').count(), parameters.length, "Parameter count for: " + sql);
+		List<String> plan = new ArrayList<>();
+		boolean fullScan = false;
+		try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+			for (int i = 0; i < parameters.length; i++) {
+				statement.setObject(i + 1, parameters[i]);
+			}
+			try (ResultSet rows = statement.executeQuery()) {
+				while (rows.next()) {
+					plan.add(rows.getString("table") + ": type=" + rows.getString("type") + ", key=" + rows.getString("key"));
+					fullScan |= "ALL".equals(rows.getString("type"));
+				}
+			}
+		}
+		assertFalse(fullScan, "Full table scan for: " + sql + "\n" + String.join("\n", plan));
+	}
+}
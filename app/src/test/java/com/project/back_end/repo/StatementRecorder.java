@@ -0,0 +1,47 @@
+package com.project.back_end.repo;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every SQL statement Hibernate prepares, unchanged.
+ * Import {@link Config} into a JPA test context and autowire the recorder to see which statements a call issues.
+ */
+public class StatementRecorder implements StatementInspector {
+
+	private final List<String> statements = new CopyOnWriteArrayList<>();
+
+	@Override
+	public String inspect(String sql) {
+		statements.add(sql);
+		return sql;
+	}
+
+	public List<String> getStatements() {
+		return statements;
+	}
+
+	public void clear() {
+		statements.clear();
+	}
+
+	@TestConfiguration
+	public static class Config {
+
+		@Bean
+		StatementRecorder statementRecorder() {
+			return new StatementRecorder();
+		}
+
+		@Bean
+		HibernatePropertiesCustomizer statementInspector(StatementRecorder recorder) {
+			return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, recorder);
+		}
+	}
+}
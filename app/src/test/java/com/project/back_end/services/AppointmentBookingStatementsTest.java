@@ -0,0 +1,119 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.StatementRecorder;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Books an appointment against the migrated MySQL schema and counts the SQL Hibernate actually issues,
+ * including anything a mock cannot see: lazy loads, flush-time SELECTs or a reference that hits the database.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, StatementRecorder.Config.class})
+class AppointmentBookingStatementsTest {
+
+	@Container
+	private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+	private static final LocalDateTime SLOT = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private StatementRecorder recorder;
+
+	@MockitoBean
+	private AvailabilityCache availabilityCache;
+
+	@MockitoBean
+	private SlotScheduler slotScheduler;
+
+	@MockitoBean
+	private DoctorDirectory doctorDirectory;
+
+	@MockitoBean
+	private SlotHoldRegistry slotHoldRegistry;
+
+	@MockitoBean
+	private PatientNameIndex patientNameIndex;
+
+	@MockitoBean
+	private DoctorSuggestIndex doctorSuggestIndex;
+
+	@MockitoBean
+	private SlotBookingIndex slotBookingIndex;
+
+	@MockitoBean
+	private WaitingRoom waitingRoom;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", mysql::getJdbcUrl);
+		registry.add("spring.datasource.username", mysql::getUsername);
+		registry.add("spring.datasource.password", mysql::getPassword);
+	}
+
+	@BeforeAll
+	static void migrateAndSeed() throws SQLException {
+		Flyway.configure()
+				.dataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword())
+				.load()
+				.migrate();
+		try (Connection connection = DriverManager.getConnection(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+			 Statement statement = connection.createStatement()) {
+			statement.execute("INSERT INTO doctors (id, name, specialty, email, password, phone) " +
+					"VALUES (1, 'Doctor One', 'Cardiology', 'doctor1@example.com', 'password', '0000000001')");
+			statement.execute("INSERT INTO patients (id, name, email, password, phone, address) " +
+					"VALUES (2, 'Patient Two', 'patient2@example.com', 'password', '0000000002', 'Address')");
+			try (PreparedStatement slot = connection.prepareStatement(
+					"INSERT INTO doctor_slots (doctor_id, slot_time, slot_end, state) VALUES (1, ?, ?, 'FREE')")) {
+				slot.setObject(1, SLOT);
+				slot.setObject(2, SLOT.plusHours(1));
+				slot.executeUpdate();
+			}
+		}
+	}
+
+	@Test
+	void bookingIssuesAtMostTwoStatements() {
+		Doctor doctorRef = new Doctor();
+		doctorRef.setId(1L);
+		Appointment appointment = new Appointment(doctorRef, null, SLOT);
+
+		recorder.clear();
+		int result = appointmentService.bookAppointment(appointment, 2L);
+		List<String> statements = List.copyOf(recorder.getStatements());
+
+		assertEquals(1, result);
+		// The slot claim and the INSERT; doctor and patient are attached as references without a SELECT
+		assertTrue(statements.size() <= 2, "Booking issued " + statements.size() + " statements:\n" +
+				String.join("\n", statements));
+	}
+}
@@ -0,0 +1,253 @@
+package com.project.back_end.services;
+
+import com.project.back_end.dto.AppointmentSeriesRequest;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.DoctorSlot;
+import com.project.back_end.models.Patient;
+import com.project.back_end.models.TimeSlot;
+import com.project.back_end.repositories.AppointmentRepository;
+import com.project.back_end.repositories.DoctorRepository;
+import com.project.back_end.repositories.DoctorSlotRepository;
+import com.project.back_end.repositories.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentServiceTest {
+
+	@Mock
+	private AppointmentRepository appointmentRepository;
+
+	@Mock
+	private PatientRepository patientRepository;
+
+	@Mock
+	private DoctorRepository doctorRepository;
+
+	@Mock
+	private AvailabilityCache availabilityCache;
+
+	@Mock
+	private TransactionTemplate transactionTemplate;
+
+	@Mock
+	private DoctorSuggestIndex doctorSuggestIndex;
+
+	@Mock
+	private SlotBookingIndex slotBookingIndex;
+
+	@Mock
+	private DoctorSlotRepository doctorSlotRepository;
+
+	@Mock
+	private SlotHoldRegistry slotHoldRegistry;
+
+	@Mock
+	private DoctorDirectory doctorDirectory;
+
+	@Mock
+	private SlotScheduler slotScheduler;
+
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+
+	@Mock
+	private TransactionStatus transactionStatus;
+
+	@InjectMocks
+	private AppointmentService appointmentService;
+
+	private final LocalDateTime slot = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+	@BeforeEach
+	void runCallbacksInline() {
+		lenient().when(transactionTemplate.execute(any()))
+				.thenAnswer(invocation -> invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(transactionStatus));
+	}
+
+	@Test
+	void bookingClaimsTheSlotThenInserts() {
+		Doctor doctorRef = new Doctor();
+		doctorRef.setId(1L);
+		Patient patientRef = new Patient();
+		patientRef.setId(2L);
+		when(doctorRepository.getReferenceById(1L)).thenReturn(doctorRef);
+		when(patientRepository.getReferenceById(2L)).thenReturn(patientRef);
+		when(doctorSlotRepository.claim(1L, slot)).thenReturn(1);
+
+		Appointment appointment = new Appointment(doctorRef, null, slot);
+
+		assertEquals(1, appointmentService.bookAppointment(appointment, 2L));
+
+		// References are proxies and issue no SQL, so the slot UPDATE and the INSERT are the only statements
+		InOrder order = inOrder(doctorSlotRepository, appointmentRepository);
+		order.verify(doctorSlotRepository).claim(1L, slot);
+		order.verify(appointmentRepository).saveAndFlush(appointment);
+		verify(doctorRepository).getReferenceById(1L);
+		verify(patientRepository).getReferenceById(2L);
+		verifyNoMoreInteractions(doctorRepository, patientRepository, appointmentRepository, doctorSlotRepository);
+		verify(availabilityCache).invalidate(1L, slot.toLocalDate());
+		verify(slotBookingIndex).book(1L, slot);
+		verify(doctorSuggestIndex).recordBooking(1L);
+	}
+
+	@Test
+	void bookingReportsTakenSlotWhenClaimFails() {
+		Doctor doctorRef = new Doctor();
+		doctorRef.setId(1L);
+		when(doctorSlotRepository.claim(1L, slot)).thenReturn(0);
+
+		Appointment appointment = new Appointment(doctorRef, null, slot);
+
+		assertEquals(-1, appointmentService.bookAppointment(appointment, 2L));
+		verifyNoInteractions(appointmentRepository, availabilityCache, slotBookingIndex, doctorSuggestIndex);
+	}
+
+	@Test
+	void bookingRejectsSlotHeldByAnotherPatient() {
+		Doctor doctorRef = new Doctor();
+		doctorRef.setId(1L);
+		when(slotHoldRegistry.isHeldByOther(1L, slot, 2L)).thenReturn(true);
+
+		Appointment appointment = new Appointment(doctorRef, null, slot);
+
+		assertEquals(-1, appointmentService.bookAppointment(appointment, 2L));
+		verifyNoInteractions(doctorSlotRepository, appointmentRepository);
+	}
+
+	@Test
+	void bookingReportsTakenSlotFromUniqueConstraint() {
+		Doctor doctorRef = new Doctor();
+		doctorRef.setId(1L);
+		when(doctorSlotRepository.claim(1L, slot)).thenReturn(1);
+		when(doctorRepository.getReferenceById(1L)).thenReturn(doctorRef);
+		when(appointmentRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("could not execute statement",
+				new SQLIntegrityConstraintViolationException("Duplicate entry '1-2030-01-01 09:00:00.000000' for key 'appointments.uk_appointment_doctor_time'")));
+
+		Appointment appointment = new Appointment(doctorRef, null, slot);
+
+		assertEquals(-1, appointmentService.bookAppointment(appointment, 2L));
+		verifyNoInteractions(availabilityCache, slotBookingIndex, doctorSuggestIndex);
+	}
+
+	@Test
+	void bookingReportsErrorForOtherIntegrityViolations() {
+		Doctor doctorRef = new Doctor();
+		doctorRef.setId(1L);
+		when(doctorSlotRepository.claim(1L, slot)).thenReturn(1);
+		when(doctorRepository.getReferenceById(1L)).thenReturn(doctorRef);
+		when(appointmentRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("could not execute statement",
+				new SQLIntegrityConstraintViolationException("Cannot add or update a child row: a foreign key constraint fails (`cms`.`appointments`, CONSTRAINT `fk_appointment_patient`)")));
+
+		Appointment appointment = new Appointment(doctorRef, null, slot);
+
+		assertEquals(0, appointmentService.bookAppointment(appointment, 2L));
+		verifyNoInteractions(availabilityCache, slotBookingIndex, doctorSuggestIndex);
+	}
+
+	@Test
+	void seriesBooksEveryOccurrenceUpToTheBound() {
+		List<LocalDateTime> times = weekly(AppointmentService.MAX_SERIES_OCCURRENCES);
+		givenSeriesDoctor();
+		when(doctorSlotRepository.findSlotTimes(1L, times.get(0), times.get(times.size() - 1), DoctorSlot.State.FREE))
+				.thenReturn(times);
+		when(doctorSlotRepository.claimAll(eq(1L), anyCollection())).thenReturn(times.size());
+
+		ResponseEntity<Map<String, Object>> response = appointmentService.bookSeries(
+				new AppointmentSeriesRequest(1L, slot, AppointmentService.MAX_SERIES_OCCURRENCES, 7), 2L);
+
+		assertEquals(201, response.getStatusCode().value());
+		assertEquals(times.size(), response.getBody().get("count"));
+		verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> rows) -> rows.size() == times.size()));
+		verify(slotBookingIndex).book(1L, times.get(times.size() - 1));
+	}
+
+	@Test
+	void seriesRejectsOccurrencesOutsideTheBound() {
+		for (int occurrences : new int[]{0, AppointmentService.MAX_SERIES_OCCURRENCES + 1}) {
+			ResponseEntity<Map<String, Object>> response = appointmentService.bookSeries(
+					new AppointmentSeriesRequest(1L, slot, occurrences, 7), 2L);
+
+			assertEquals(400, response.getStatusCode().value());
+		}
+		verifyNoInteractions(doctorDirectory, doctorSlotRepository, transactionTemplate, jdbcTemplate);
+	}
+
+	@Test
+	void seriesRejectsSlotHeldByAnotherPatient() {
+		List<LocalDateTime> times = weekly(3);
+		givenSeriesDoctor();
+		when(doctorSlotRepository.findSlotTimes(1L, times.get(0), times.get(2), DoctorSlot.State.FREE)).thenReturn(times);
+		lenient().when(slotHoldRegistry.isHeldByOther(1L, times.get(1), 2L)).thenReturn(true);
+
+		ResponseEntity<Map<String, Object>> response = appointmentService.bookSeries(
+				new AppointmentSeriesRequest(1L, slot, 3, 7), 2L);
+
+		assertEquals(409, response.getStatusCode().value());
+		assertEquals(List.of(times.get(1).toString()), response.getBody().get("unavailable"));
+		verify(doctorSlotRepository, never()).claimAll(any(), any());
+		verifyNoInteractions(transactionTemplate, jdbcTemplate, slotBookingIndex);
+	}
+
+	@Test
+	void seriesRollsBackWhenASlotIsClaimedMeanwhile() {
+		List<LocalDateTime> times = weekly(3);
+		givenSeriesDoctor();
+		when(doctorSlotRepository.findSlotTimes(1L, times.get(0), times.get(2), DoctorSlot.State.FREE)).thenReturn(times);
+		// Another booking claimed one of the slots between the check and the UPDATE
+		when(doctorSlotRepository.claimAll(1L, times)).thenReturn(2);
+
+		ResponseEntity<Map<String, Object>> response = appointmentService.bookSeries(
+				new AppointmentSeriesRequest(1L, slot, 3, 7), 2L);
+
+		assertEquals(409, response.getStatusCode().value());
+		verify(transactionStatus).setRollbackOnly();
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+		verifyNoInteractions(availabilityCache, slotBookingIndex, doctorSuggestIndex);
+	}
+
+	private void givenSeriesDoctor() {
+		Doctor doctor = new Doctor();
+		doctor.setId(1L);
+		doctor.setAvailableTimes(List.of(TimeSlot.of(LocalTime.of(9, 0), LocalTime.of(10, 0))));
+		when(doctorDirectory.findById(1L)).thenReturn(Optional.of(doctor));
+		when(slotScheduler.isWithinHorizon(any())).thenReturn(true);
+	}
+
+	private List<LocalDateTime> weekly(int occurrences) {
+		List<LocalDateTime> times = new ArrayList<>();
+		for (int i = 0; i < occurrences; i++) {
+			times.add(slot.plusWeeks(i));
+		}
+		return times;
+	}
+}
@@ -0,0 +1,160 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repositories.PrescriptionRepository;
+import jakarta.validation.Validation;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrescriptionServiceTest {
+
+	@Mock
+	private PrescriptionRepository prescriptionRepository;
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private BulkOperations bulkOperations;
+
+	@Mock
+	private BulkWriteResult bulkWriteResult;
+
+	@InjectMocks
+	private PrescriptionService prescriptionService;
+
+	/** Documents of every bulk insert, copied because the service reuses its chunk list */
+	private final List<List<Prescription>> written = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(prescriptionService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(prescriptionService, "validator",
+				Validation.buildDefaultValidatorFactory().getValidator());
+		ReflectionTestUtils.setField(prescriptionService, "bulkChunkSize", 2);
+
+		lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Prescription.class)).thenReturn(bulkOperations);
+		lenient().when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+			written.add(new ArrayList<>(invocation.<List<Prescription>>getArgument(0)));
+			return bulkOperations;
+		});
+		lenient().when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+		lenient().when(bulkWriteResult.getInsertedCount()).thenAnswer(invocation -> written.get(written.size() - 1).size());
+	}
+
+	@Test
+	void jsonArrayIsWrittenInChunks() {
+		ResponseEntity<Map<String, Object>> response = ingest(
+				"[" + record(1) + "," + record(2) + "," + record(3) + "]");
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(3, response.getBody().get("received"));
+		assertEquals(3, response.getBody().get("inserted"));
+		assertEquals(0, response.getBody().get("failed"));
+		assertEquals(List.of(2, 1), written.stream().map(List::size).toList());
+		assertEquals(3L, written.get(1).get(0).getAppointmentId());
+	}
+
+	@Test
+	void newlineDelimitedRecordsAreValidatedOneByOne() {
+		String invalid = "{\"patientName\": \"John Doe\", \"appointmentId\": 2, \"medication\": \"Paracetamol\", \"dosage\": \"1\"}";
+
+		ResponseEntity<Map<String, Object>> response = ingest(record(1) + "\n" + invalid + "\n" + record(3) + "\n");
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(3, response.getBody().get("received"));
+		assertEquals(2, response.getBody().get("inserted"));
+		assertEquals(List.of(1), failedIndexes(response));
+		assertTrue(failureError(response, 0).startsWith("dosage"));
+	}
+
+	@Test
+	void nullAndNonObjectRecordsFailWithoutAbortingTheRest() {
+		ResponseEntity<Map<String, Object>> response = ingest(
+				"[" + record(1) + ", null, 42, \"text\", [1, 2], " + record(6) + "]");
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(6, response.getBody().get("received"));
+		assertEquals(2, response.getBody().get("inserted"));
+		assertEquals(List.of(1, 2, 3, 4), failedIndexes(response));
+		assertEquals(List.of(1L, 6L), written.stream().flatMap(List::stream).map(Prescription::getAppointmentId).toList());
+	}
+
+	@Test
+	void malformedJsonStopsIngestionAfterWritingEarlierRecords() {
+		ResponseEntity<Map<String, Object>> response = ingest(
+				"[" + record(1) + ", {\"patientName\": \"John Doe\" \"appointmentId\": 2}, " + record(3) + "]");
+
+		assertEquals(400, response.getStatusCode().value());
+		assertEquals(1, response.getBody().get("inserted"));
+		assertEquals(List.of(1), failedIndexes(response));
+		assertTrue(((String) response.getBody().get("message")).contains("record 1"));
+	}
+
+	@Test
+	void duplicateKeysAreReportedByRecordIndex() {
+		BulkWriteResult partial = mock(BulkWriteResult.class);
+		when(partial.getInsertedCount()).thenReturn(1);
+		BulkOperationException duplicate = mock(BulkOperationException.class);
+		when(duplicate.getResult()).thenReturn(partial);
+		when(duplicate.getErrors()).thenReturn(List.of(new BulkWriteError(11000,
+				"E11000 duplicate key error collection: prescriptions index: appointmentId", new BsonDocument(), 1)));
+		when(bulkOperations.execute()).thenThrow(duplicate).thenReturn(bulkWriteResult);
+
+		ResponseEntity<Map<String, Object>> response = ingest(
+				"[" + record(1) + "," + record(1) + "," + record(3) + "]");
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(2, response.getBody().get("inserted"));
+		assertEquals(List.of(1), failedIndexes(response));
+		assertTrue(failureError(response, 0).startsWith("E11000"));
+		assertFalse(response.getBody().containsKey("message"));
+	}
+
+	private ResponseEntity<Map<String, Object>> ingest(String body) {
+		return prescriptionService.bulkSavePrescriptions(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String record(long appointmentId) {
+		return "{\"patientName\": \"John Doe\", \"appointmentId\": " + appointmentId +
+				", \"medication\": \"Paracetamol\", \"dosage\": \"500mg\"}";
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> failedIndexes(ResponseEntity<Map<String, Object>> response) {
+		return ((List<Map<String, Object>>) response.getBody().get("failures")).stream()
+				.map(failure -> failure.get("index"))
+				.toList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String failureError(ResponseEntity<Map<String, Object>> response, int position) {
+		return (String) ((List<Map<String, Object>>) response.getBody().get("failures")).get(position).get("error");
+	}
+}
@@ -0,0 +1,72 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrigramIndexTest {
+
+	@Test
+	void shortQueriesScanEveryText() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(1L, "Alice Smith");
+		index.put(2L, "Bob Jones");
+		index.put(3L, "Al");
+
+		assertEquals(ids(1, 3), index.search("al"));
+		assertEquals(ids(2), index.search("b"));
+		assertEquals(ids(1, 2), index.search(" "));
+		assertEquals(ids(1, 2, 3), index.search(""));
+	}
+
+	@Test
+	void searchIgnoresCase() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(1L, "ALICE Smith");
+		index.put(2L, "alice jones");
+
+		assertEquals(ids(1, 2), index.search("Alice"));
+		assertEquals(ids(1), index.search("cE sMI"));
+		assertEquals(ids(2), index.search("JONES"));
+	}
+
+	@Test
+	void candidatesAreVerifiedAgainstTheText() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(1L, "abcxbcd");
+		index.put(2L, "abcd");
+
+		// Both trigrams of "abcd" occur in "abcxbcd", but not next to each other
+		assertEquals(ids(2), index.search("abcd"));
+		assertEquals(ids(), index.search("xyz"));
+	}
+
+	@Test
+	void putReplacesTheTextAndRemoveDropsIt() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(1L, "Alice");
+		index.put(2L, "Alicia");
+
+		index.put(1L, "Carol");
+		assertEquals(ids(2), index.search("ali"));
+		assertEquals(ids(1), index.search("carol"));
+
+		index.remove(1L);
+		assertEquals(ids(), index.search("carol"));
+		assertEquals(ids(2), index.search("ali"));
+		assertEquals(ids(2), index.search("a"));
+
+		index.remove(42L);
+		assertEquals(ids(2), index.search("alicia"));
+	}
+
+	private static BitSet ids(int... ids) {
+		BitSet bits = new BitSet();
+		for (int id : ids) {
+			bits.set(id);
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,141 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitingRoomTest {
+
+	private static final Long DOCTOR = 1L;
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private WaitingRoom waitingRoom(int maxActive, long admissionTtlSeconds) {
+		return new WaitingRoom(String.valueOf(DOCTOR), maxActive, admissionTtlSeconds, 15, clock::get);
+	}
+
+	private void elapse(long seconds) {
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+	}
+
+	@Test
+	void designatedDoctorsAndReleaseWindowsAreGated() {
+		WaitingRoom room = waitingRoom(1, 120);
+
+		assertTrue(room.isGated(DOCTOR));
+		assertFalse(room.isGated(2L));
+
+		room.openReleaseWindow(2L);
+		assertTrue(room.isGated(2L));
+		elapse(TimeUnit.MINUTES.toSeconds(15));
+		assertFalse(room.isGated(2L));
+	}
+
+	@Test
+	void admitsInArrivalOrderUpToCapacity() {
+		WaitingRoom room = waitingRoom(2, 120);
+		String first = room.join(DOCTOR, 10L).getId();
+		String second = room.join(DOCTOR, 11L).getId();
+		String third = room.join(DOCTOR, 12L).getId();
+		String fourth = room.join(DOCTOR, 13L).getId();
+
+		assertEquals(true, room.poll(first, 10L).get("admitted"));
+		assertEquals(true, room.poll(second, 11L).get("admitted"));
+		assertEquals(1, room.poll(third, 12L).get("position"));
+		assertEquals(2, room.poll(fourth, 13L).get("position"));
+
+		// Joining again keeps the patient's place
+		assertEquals(third, room.join(DOCTOR, 12L).getId());
+	}
+
+	@Test
+	void completingAnAdmissionAdmitsTheNextPatient() {
+		WaitingRoom room = waitingRoom(1, 120);
+		String first = room.join(DOCTOR, 10L).getId();
+		String second = room.join(DOCTOR, 11L).getId();
+
+		String admission = (String) room.poll(first, 10L).get("admissionToken");
+		assertTrue(room.isAdmitted(DOCTOR, 10L, admission));
+		assertFalse(room.isAdmitted(DOCTOR, 11L, admission));
+		assertEquals(false, room.poll(second, 11L).get("admitted"));
+
+		room.complete(DOCTOR, admission);
+
+		assertFalse(room.isAdmitted(DOCTOR, 10L, admission));
+		assertNull(room.poll(first, 10L));
+		Map<String, Object> status = room.poll(second, 11L);
+		assertEquals(true, status.get("admitted"));
+		assertTrue(room.isAdmitted(DOCTOR, 11L, (String) status.get("admissionToken")));
+	}
+
+	@Test
+	void expiredAdmissionReleasesCapacity() {
+		WaitingRoom room = waitingRoom(1, 10);
+		String first = room.join(DOCTOR, 10L).getId();
+		String second = room.join(DOCTOR, 11L).getId();
+		String admission = (String) room.poll(first, 10L).get("admissionToken");
+
+		elapse(9);
+		assertTrue(room.isAdmitted(DOCTOR, 10L, admission));
+		assertEquals(false, room.poll(second, 11L).get("admitted"));
+
+		elapse(1);
+		assertFalse(room.isAdmitted(DOCTOR, 10L, admission));
+		room.advance();
+		assertNull(room.poll(first, 10L));
+		assertEquals(true, room.poll(second, 11L).get("admitted"));
+	}
+
+	@Test
+	void abandonedTicketsAreSkipped() {
+		WaitingRoom room = waitingRoom(1, 120);
+		String first = room.join(DOCTOR, 10L).getId();
+		String abandoned = room.join(DOCTOR, 11L).getId();
+		String waiting = room.join(DOCTOR, 12L).getId();
+		String admission = (String) room.poll(first, 10L).get("admissionToken");
+
+		// Only the third patient keeps polling
+		elapse(31);
+		assertEquals(2, room.poll(waiting, 12L).get("position"));
+
+		room.complete(DOCTOR, admission);
+
+		assertNull(room.poll(abandoned, 11L));
+		assertEquals(true, room.poll(waiting, 12L).get("admitted"));
+	}
+
+	@Test
+	void joinRacingWithEvictionEndsUpInTheLiveQueue() throws InterruptedException {
+		WaitingRoom room = waitingRoom(1, 120);
+		String first = room.join(DOCTOR, 10L).getId();
+		room.complete(DOCTOR, (String) room.poll(first, 10L).get("admissionToken"));
+		// The queue is now empty but not yet evicted
+		Object queue = ((Map<?, ?>) ReflectionTestUtils.getField(room, "queues")).get(DOCTOR);
+
+		WaitingRoom.Ticket[] joined = new WaitingRoom.Ticket[1];
+		Thread joiner = new Thread(() -> joined[0] = room.join(DOCTOR, 11L));
+		synchronized (queue) {
+			joiner.start();
+			// The joiner has looked up the queue and waits for its lock
+			while (joiner.getState() != Thread.State.BLOCKED) {
+				Thread.onSpinWait();
+			}
+			room.advance();
+		}
+		joiner.join();
+
+		Map<String, Object> status = room.poll(joined[0].getId(), 11L);
+		assertNotNull(status);
+		assertEquals(true, status.get("admitted"));
+		assertTrue(room.isAdmitted(DOCTOR, 11L, (String) status.get("admissionToken")));
+	}
+}